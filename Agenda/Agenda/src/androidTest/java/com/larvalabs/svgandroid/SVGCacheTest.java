@@ -0,0 +1,103 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.test.AndroidTestCase;
+import org.reber.agenda.R;
+
+/**
+ * Loads the bundled icon through the cache, checking that a second load is served from it and
+ * that a change of the configuration makes it parse the icon again.
+ *
+ * @author Larva Labs, LLC
+ */
+public class SVGCacheTest extends AndroidTestCase {
+
+    private static final int SEARCH_COLOR = 0xFF000000;
+    private static final int REPLACE_COLOR = 0xFFFF0000;
+
+    private Resources resources;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        resources = getContext().getResources();
+        SVGCache.invalidate();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SVGCache.invalidate();
+        super.tearDown();
+    }
+
+    public void testHit() throws Exception {
+        int hits = SVGCache.getHitCount();
+        int misses = SVGCache.getMissCount();
+
+        SVG first = SVGCache.getSVGFromResource(resources, R.raw.calendaricon);
+        SVG second = SVGCache.getSVGFromResource(resources, R.raw.calendaricon);
+
+        assertSame(first, second);
+        assertEquals(misses + 1, SVGCache.getMissCount());
+        assertEquals(hits + 1, SVGCache.getHitCount());
+    }
+
+    public void testColorSwapIsCachedSeparately() throws Exception {
+        SVG plain = SVGCache.getSVGFromResource(resources, R.raw.calendaricon);
+        SVG swapped = SVGCache.getSVGFromResource(resources, R.raw.calendaricon, SEARCH_COLOR, REPLACE_COLOR);
+        SVG tintable = SVGCache.getTintableSVGFromResource(resources, R.raw.calendaricon, SEARCH_COLOR);
+
+        assertNotSame(plain, swapped);
+        assertNotSame(plain, tintable);
+        assertNotSame(swapped, tintable);
+        assertSame(swapped, SVGCache.getSVGFromResource(resources, R.raw.calendaricon, SEARCH_COLOR, REPLACE_COLOR));
+    }
+
+    public void testInvalidate() throws Exception {
+        SVG first = SVGCache.getSVGFromResource(resources, R.raw.calendaricon);
+        SVGCache.invalidate();
+
+        assertNotSame(first, SVGCache.getSVGFromResource(resources, R.raw.calendaricon));
+    }
+
+    public void testConfigurationChange() throws Exception {
+        Configuration rotated = new Configuration(resources.getConfiguration());
+        rotated.orientation = rotated.orientation == Configuration.ORIENTATION_LANDSCAPE
+                ? Configuration.ORIENTATION_PORTRAIT : Configuration.ORIENTATION_LANDSCAPE;
+
+        SVG first = SVGCache.getSVGFromResource(resources, R.raw.calendaricon);
+        try {
+            // The same assets in the other orientation, as after the device is rotated
+            Resources other = new Resources(resources.getAssets(), resources.getDisplayMetrics(), rotated);
+            int misses = SVGCache.getMissCount();
+
+            SVG second = SVGCache.getSVGFromResource(other, R.raw.calendaricon);
+
+            assertNotSame(first, second);
+            assertEquals(misses + 1, SVGCache.getMissCount());
+            assertSame(second, SVGCache.getSVGFromResource(other, R.raw.calendaricon));
+        } finally {
+            // The resources share their assets, so put them back to our configuration
+            resources.updateConfiguration(resources.getConfiguration(), resources.getDisplayMetrics());
+        }
+    }
+}
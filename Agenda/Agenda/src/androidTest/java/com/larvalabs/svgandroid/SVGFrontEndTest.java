@@ -0,0 +1,227 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import android.test.AndroidTestCase;
+import android.util.Log;
+import org.reber.agenda.R;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs both front ends over the same SVGs on the device, and checks that the handler
+ * sees the same document from each of them and that they build the same picture. The
+ * time each one takes is logged, so the default can be checked against the platform
+ * parsers of a particular device.
+ * <p/>
+ * Along with the bundled icon, the SVGs in resources/svg are a corpus of larger
+ * drawings, like the ones exported by Inkscape and Illustrator.
+ *
+ * @author Larva Labs, LLC
+ */
+public class SVGFrontEndTest extends AndroidTestCase {
+
+    private static final int TIMING_RUNS = 50;
+
+    /**
+     * Uses the parts of XML that the pull front end handles on its own: namespaces,
+     * prefixed attributes, a DTD, comments and text.
+     */
+    private static final String SAMPLE =
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n"
+            + "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+            + " width=\"20px\" height=\"20px\" xml:space=\"preserve\">\n"
+            + "<!-- A comment -->\n"
+            + "<defs><linearGradient id=\"a\" x1=\"0\" y1=\"0\" x2=\"1\" y2=\"1\">"
+            + "<stop offset=\"0\" style=\"stop-color:#ff0000;stop-opacity:0.5\"/></linearGradient>"
+            + "<linearGradient id=\"b\" xlink:href=\"#a\" gradientTransform=\"rotate(45)\"/></defs>\n"
+            + "<g transform=\"translate(1,2)\" display=\"inline\">text"
+            + "<rect x=\"1\" y=\"1\" width=\"5\" height=\"5\" fill=\"url(#b)\"/>"
+            + "<polygon points=\"0,0 5,0 5,5\" style=\"fill:#00ff00;stroke:#000000;stroke-width:2\"/>"
+            + "</g>\n"
+            + "</svg>\n";
+
+    public void testCalendarIcon() throws Exception {
+        byte[] data = readResource(R.raw.calendaricon);
+        assertSameEvents("calendaricon", data);
+        assertSameSVG(data);
+    }
+
+    public void testSample() throws Exception {
+        byte[] data = SAMPLE.getBytes("UTF-8");
+        assertSameEvents("sample", data);
+        assertSameSVG(data);
+    }
+
+    public void testRegions() throws Exception {
+        assertSameCorpusSVG("regions.svg");
+    }
+
+    public void testChart() throws Exception {
+        assertSameCorpusSVG("chart.svg");
+    }
+
+    public void testIcons() throws Exception {
+        assertSameCorpusSVG("icons.svg");
+    }
+
+    public void testGetIndexWithoutNamespace() throws Exception {
+        final List<String> widths = new ArrayList<String>();
+        SVGFrontEnd.PULL.parse(new ByteArrayInputStream(SAMPLE.getBytes("UTF-8")), new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                if (localName.equals("svg")) {
+                    widths.add(atts.getValue(null, "width"));
+                    widths.add(atts.getValue("", "width"));
+                }
+            }
+        });
+        assertEquals(Arrays.asList("20px", "20px"), widths);
+    }
+
+    private void assertSameCorpusSVG(String name) throws Exception {
+        byte[] data = readCorpus(name);
+        assertSameEvents(name, data);
+        assertSameSVG(data);
+    }
+
+    /**
+     * Checks that both front ends build a picture of the same size and bounds.
+     */
+    private static void assertSameSVG(byte[] data) throws Exception {
+        SVGFrontEnd previous = SVGParser.getFrontEnd();
+        try {
+            SVGParser.setFrontEnd(SVGFrontEnd.SAX);
+            SVG sax = SVGParser.getSVGFromInputStream(new ByteArrayInputStream(data));
+            SVGParser.setFrontEnd(SVGFrontEnd.PULL);
+            SVG pull = SVGParser.getSVGFromInputStream(new ByteArrayInputStream(data));
+
+            assertEquals(sax.getPicture().getWidth(), pull.getPicture().getWidth());
+            assertEquals(sax.getPicture().getHeight(), pull.getPicture().getHeight());
+            assertEquals(sax.getLimits().toShortString(), pull.getLimits().toShortString());
+        } finally {
+            SVGParser.setFrontEnd(previous);
+        }
+    }
+
+    /**
+     * Checks that both front ends report the same events for the given SVG, and logs
+     * how long each of them takes to read it.
+     */
+    private void assertSameEvents(String name, byte[] data) throws Exception {
+        List<String> sax = record(SVGFrontEnd.SAX, data);
+        List<String> pull = record(SVGFrontEnd.PULL, data);
+        assertEquals(sax, pull);
+
+        long saxTime = time(SVGFrontEnd.SAX, data);
+        long pullTime = time(SVGFrontEnd.PULL, data);
+        Log.i(SVGParser.TAG, name + ": " + sax.size() + " events, SAX " + saxTime + "us, pull "
+                + pullTime + "us per parse");
+    }
+
+    private static List<String> record(SVGFrontEnd frontEnd, byte[] data) throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        frontEnd.parse(new ByteArrayInputStream(data), handler);
+        return handler.events;
+    }
+
+    /**
+     * @return the average time the front end takes to read the data, in microseconds
+     */
+    private static long time(SVGFrontEnd frontEnd, byte[] data) throws Exception {
+        // Warm up first, so that loading the parser classes isn't counted
+        DefaultHandler handler = new DefaultHandler();
+        for (int i = 0; i < TIMING_RUNS / 5; i++) {
+            frontEnd.parse(new ByteArrayInputStream(data), handler);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            frontEnd.parse(new ByteArrayInputStream(data), handler);
+        }
+        return (System.nanoTime() - start) / TIMING_RUNS / 1000;
+    }
+
+    private byte[] readResource(int resId) throws Exception {
+        return read(getContext().getResources().openRawResource(resId));
+    }
+
+    private static byte[] readCorpus(String name) throws Exception {
+        InputStream in = SVGFrontEndTest.class.getResourceAsStream("/svg/" + name);
+        assertNotNull("Missing " + name, in);
+        return read(in);
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Records what the SVG handler reads: the document, and the local names of the
+     * elements and attributes with the attribute values. The handler looks attributes
+     * up by name, so they are sorted rather than kept in the order the parser gave them.
+     */
+    private static class RecordingHandler extends DefaultHandler {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void startDocument() {
+            events.add("startDocument");
+        }
+
+        @Override
+        public void endDocument() {
+            events.add("endDocument");
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            List<String> attributes = new ArrayList<String>();
+            for (int i = 0; i < atts.getLength(); i++) {
+                attributes.add(atts.getLocalName(i) + "=" + atts.getValue(i));
+            }
+            Collections.sort(attributes);
+            events.add("start " + localName + " " + attributes);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            events.add("end " + localName);
+        }
+    }
+}
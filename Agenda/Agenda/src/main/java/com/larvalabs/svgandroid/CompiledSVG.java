@@ -0,0 +1,417 @@
+package com.larvalabs.svgandroid;
+
+import android.content.res.AssetManager;
+import android.graphics.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+/**
+ * Loads SVGs that were compiled to the binary display list format (see {@link SVGBinaryFormat}) at build time.
+ * The drawing calls are replayed straight in to a Picture, so there is no XML or number parsing involved.
+ * <p/>
+ * As with {@link SVGParser}, a single color can be replaced while loading, or kept separate so it can be tinted
+ * when the SVG is drawn.
+ *
+ * @author Larva Labs, LLC
+ */
+public class CompiledSVG {
+
+    /**
+     * Load a compiled SVG from an Android application asset.
+     *
+     * @param assetMngr the Android asset manager.
+     * @param svgPath   the path to the compiled SVG file in the application's assets.
+     * @return the loaded SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if the file isn't a valid compiled SVG.
+     * @throws java.io.IOException       if there was a problem reading the file.
+     */
+    public static SVG getSVGFromAsset(AssetManager assetMngr, String svgPath) throws SVGParseException, IOException {
+        return load(readAsset(assetMngr, svgPath), null, null, false);
+    }
+
+    /**
+     * Load a compiled SVG from an Android application asset, replacing a single color with another color.
+     *
+     * @param assetMngr    the Android asset manager.
+     * @param svgPath      the path to the compiled SVG file in the application's assets.
+     * @param searchColor  the color in the SVG to replace.
+     * @param replaceColor the color with which to replace the search color.
+     * @return the loaded SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if the file isn't a valid compiled SVG.
+     * @throws java.io.IOException       if there was a problem reading the file.
+     */
+    public static SVG getSVGFromAsset(AssetManager assetMngr, String svgPath, int searchColor, int replaceColor) throws SVGParseException, IOException {
+        return load(readAsset(assetMngr, svgPath), searchColor, replaceColor, false);
+    }
+
+    /**
+     * Load a compiled SVG from an Android application asset, keeping the parts drawn in a single color
+     * separate so that they can be drawn in any color with {@link SVG#drawTinted(Canvas, int)}.
+     *
+     * @param assetMngr   the Android asset manager.
+     * @param svgPath     the path to the compiled SVG file in the application's assets.
+     * @param searchColor the color in the SVG that can be tinted.
+     * @return the loaded SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if the file isn't a valid compiled SVG.
+     * @throws java.io.IOException       if there was a problem reading the file.
+     */
+    public static SVG getTintableSVGFromAsset(AssetManager assetMngr, String svgPath, int searchColor) throws SVGParseException, IOException {
+        return load(readAsset(assetMngr, svgPath), searchColor, null, true);
+    }
+
+    /**
+     * Load a compiled SVG from an input stream, replacing a single color with another color.
+     *
+     * @param data         the input stream, with the compiled SVG data.
+     * @param searchColor  the color in the SVG to replace.
+     * @param replaceColor the color with which to replace the search color.
+     * @return the loaded SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if the data isn't a valid compiled SVG.
+     * @throws java.io.IOException       if there was a problem reading the data.
+     */
+    public static SVG getSVGFromInputStream(InputStream data, int searchColor, int replaceColor) throws SVGParseException, IOException {
+        return load(readFully(data), searchColor, replaceColor, false);
+    }
+
+    private static byte[] readAsset(AssetManager assetMngr, String svgPath) throws IOException {
+        InputStream inputStream = assetMngr.open(svgPath);
+        try {
+            return readFully(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static SVG load(byte[] data, Integer searchColor, Integer replaceColor, boolean tintMode) throws SVGParseException {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (in.getInt() != SVGBinaryFormat.MAGIC) {
+                throw new SVGParseException("Not a compiled SVG");
+            }
+            short version = in.getShort();
+            if (version != SVGBinaryFormat.VERSION) {
+                throw new SVGParseException("Unsupported compiled SVG version " + version);
+            }
+            int width = in.getInt();
+            int height = in.getInt();
+            RectF bounds = in.get() != 0 ? readRect(in) : null;
+            RectF limits = in.get() != 0 ? readRect(in) : null;
+
+            Picture picture = new Picture();
+            Player player = new Player(picture, width, height, searchColor, replaceColor, tintMode);
+            player.play(in);
+
+            SVG result = new SVG(picture, bounds);
+            if (limits != null) {
+                result.setLimits(limits);
+            }
+            if (tintMode) {
+                result.setLayers(player.layers, player.layerTinted);
+            }
+            return result;
+        } catch (SVGParseException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // A truncated file ends up here
+            throw new SVGParseException(e);
+        }
+    }
+
+    private static RectF readRect(ByteBuffer in) {
+        return new RectF(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private static Matrix readMatrix(ByteBuffer in, float[] values) {
+        values[Matrix.MSCALE_X] = in.getFloat();
+        values[Matrix.MSKEW_X] = in.getFloat();
+        values[Matrix.MTRANS_X] = in.getFloat();
+        values[Matrix.MSKEW_Y] = in.getFloat();
+        values[Matrix.MSCALE_Y] = in.getFloat();
+        values[Matrix.MTRANS_Y] = in.getFloat();
+        values[Matrix.MPERSP_0] = 0;
+        values[Matrix.MPERSP_1] = 0;
+        values[Matrix.MPERSP_2] = 1;
+        Matrix matrix = new Matrix();
+        matrix.setValues(values);
+        return matrix;
+    }
+
+    /**
+     * Replays the operations of a compiled SVG on to a Picture.
+     */
+    private static class Player {
+
+        Picture picture;
+        Canvas canvas;
+        Paint paint;
+        int width;
+        int height;
+        float[] matrixValues = new float[9];
+        RectF rect = new RectF();
+
+        Integer searchColor;
+        Integer replaceColor;
+
+        boolean tintMode;
+        ArrayList<Picture> layers = new ArrayList<Picture>();
+        ArrayList<Boolean> layerTinted = new ArrayList<Boolean>();
+        // The transforms that have been saved and not restored yet, outermost first
+        ArrayList<Matrix> transforms = new ArrayList<Matrix>();
+
+        ArrayList<Shader> shaders = new ArrayList<Shader>();
+
+        private Player(Picture picture, int width, int height, Integer searchColor, Integer replaceColor, boolean tintMode) {
+            this.picture = picture;
+            this.width = width;
+            this.height = height;
+            this.searchColor = searchColor;
+            this.replaceColor = replaceColor;
+            this.tintMode = tintMode;
+            paint = new Paint();
+            paint.setAntiAlias(true);
+        }
+
+        /**
+         * Makes sure the next thing drawn goes in to a layer that is (or isn't) tinted,
+         * starting a new layer if needed. Does nothing unless we are in tint mode.
+         */
+        private void selectLayer(boolean tinted) {
+            if (!tintMode || (!layers.isEmpty() && layerTinted.get(layerTinted.size() - 1) == tinted)) {
+                return;
+            }
+            if (!layers.isEmpty()) {
+                layers.get(layers.size() - 1).endRecording();
+            }
+            Picture layer = new Picture();
+            canvas = layer.beginRecording(width, height);
+            // Carry over the transforms of the element being drawn and its groups
+            for (Matrix transform : transforms) {
+                canvas.save();
+                canvas.concat(transform);
+            }
+            layers.add(layer);
+            layerTinted.add(tinted);
+        }
+
+        private void setColor(int color, int alpha) {
+            boolean matched = searchColor != null && searchColor.intValue() == color;
+            if (tintMode) {
+                selectLayer(matched);
+            } else if (matched) {
+                color = replaceColor;
+            }
+            paint.setColor(color);
+            paint.setAlpha(alpha);
+        }
+
+        void play(ByteBuffer in) {
+            if (tintMode) {
+                selectLayer(false);
+            } else {
+                canvas = picture.beginRecording(width, height);
+            }
+
+            byte op;
+            while ((op = in.get()) != SVGBinaryFormat.OP_END) {
+                switch (op) {
+                    case SVGBinaryFormat.OP_SAVE: {
+                        Matrix transform = readMatrix(in, matrixValues);
+                        transforms.add(transform);
+                        canvas.save();
+                        canvas.concat(transform);
+                        break;
+                    }
+                    case SVGBinaryFormat.OP_RESTORE:
+                        transforms.remove(transforms.size() - 1);
+                        canvas.restore();
+                        break;
+                    case SVGBinaryFormat.OP_FILL_COLOR: {
+                        int color = in.getInt();
+                        int alpha = in.get() & 0xFF;
+                        paint.setShader(null);
+                        setColor(color, alpha);
+                        paint.setStyle(Paint.Style.FILL);
+                        break;
+                    }
+                    case SVGBinaryFormat.OP_FILL_SHADER:
+                        selectLayer(false);
+                        paint.setShader(shaders.get(in.getShort()));
+                        paint.setAlpha(255);
+                        paint.setStyle(Paint.Style.FILL);
+                        break;
+                    case SVGBinaryFormat.OP_STROKE:
+                        doStroke(in);
+                        break;
+                    case SVGBinaryFormat.OP_LINEAR_GRADIENT:
+                    case SVGBinaryFormat.OP_RADIAL_GRADIENT:
+                        doGradient(op == SVGBinaryFormat.OP_LINEAR_GRADIENT, in);
+                        break;
+                    case SVGBinaryFormat.OP_RECT:
+                        canvas.drawRect(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), paint);
+                        break;
+                    case SVGBinaryFormat.OP_LINE:
+                        canvas.drawLine(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), paint);
+                        break;
+                    case SVGBinaryFormat.OP_CIRCLE:
+                        canvas.drawCircle(in.getFloat(), in.getFloat(), in.getFloat(), paint);
+                        break;
+                    case SVGBinaryFormat.OP_OVAL:
+                        rect.set(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+                        canvas.drawOval(rect, paint);
+                        break;
+                    case SVGBinaryFormat.OP_PATH:
+                        canvas.drawPath(readPath(in), paint);
+                        break;
+                    default:
+                        throw new SVGParseException("Unknown operation " + op);
+                }
+            }
+
+            if (tintMode) {
+                // Also put the layers together, for drawing without a tint
+                layers.get(layers.size() - 1).endRecording();
+                canvas = picture.beginRecording(width, height);
+                for (Picture layer : layers) {
+                    canvas.drawPicture(layer);
+                }
+            }
+            picture.endRecording();
+        }
+
+        private void doStroke(ByteBuffer in) {
+            int color = in.getInt();
+            int alpha = in.get() & 0xFF;
+            byte flags = in.get();
+            setColor(color, alpha);
+            if ((flags & SVGBinaryFormat.STROKE_WIDTH) != 0) {
+                paint.setStrokeWidth(in.getFloat());
+            }
+            if ((flags & SVGBinaryFormat.STROKE_CAP) != 0) {
+                switch (in.get()) {
+                    case SVGBinaryFormat.CAP_ROUND:
+                        paint.setStrokeCap(Paint.Cap.ROUND);
+                        break;
+                    case SVGBinaryFormat.CAP_SQUARE:
+                        paint.setStrokeCap(Paint.Cap.SQUARE);
+                        break;
+                    default:
+                        paint.setStrokeCap(Paint.Cap.BUTT);
+                }
+            }
+            if ((flags & SVGBinaryFormat.STROKE_JOIN) != 0) {
+                switch (in.get()) {
+                    case SVGBinaryFormat.JOIN_ROUND:
+                        paint.setStrokeJoin(Paint.Join.ROUND);
+                        break;
+                    case SVGBinaryFormat.JOIN_BEVEL:
+                        paint.setStrokeJoin(Paint.Join.BEVEL);
+                        break;
+                    default:
+                        paint.setStrokeJoin(Paint.Join.MITER);
+                }
+            }
+            paint.setStyle(Paint.Style.STROKE);
+        }
+
+        private void doGradient(boolean isLinear, ByteBuffer in) {
+            int index = in.getShort();
+            // x1, y1, x2, y2 for a linear gradient, or x, y, radius for a radial one
+            float[] coords = new float[isLinear ? 4 : 3];
+            for (int i = 0; i < coords.length; i++) {
+                coords[i] = in.getFloat();
+            }
+            int count = in.getInt();
+            int[] colors = new int[count];
+            for (int i = 0; i < count; i++) {
+                colors[i] = in.getInt();
+            }
+            float[] positions = new float[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = in.getFloat();
+            }
+
+            Shader shader;
+            if (isLinear) {
+                shader = new LinearGradient(coords[0], coords[1], coords[2], coords[3], colors, positions, Shader.TileMode.CLAMP);
+            } else {
+                shader = new RadialGradient(coords[0], coords[1], coords[2], colors, positions, Shader.TileMode.CLAMP);
+            }
+            if (in.get() != 0) {
+                shader.setLocalMatrix(readMatrix(in, matrixValues));
+            }
+
+            while (shaders.size() <= index) {
+                shaders.add(null);
+            }
+            shaders.set(index, shader);
+        }
+
+        private Path readPath(ByteBuffer in) {
+            int verbCount = in.getInt();
+            int verbStart = in.position();
+            in.position(verbStart + verbCount);
+            // The coordinate count is only needed to skip over a path
+            in.getInt();
+
+            Path p = new Path();
+            for (int i = 0; i < verbCount; i++) {
+                switch (in.get(verbStart + i)) {
+                    case SVGBinaryFormat.VERB_MOVE:
+                        p.moveTo(in.getFloat(), in.getFloat());
+                        break;
+                    case SVGBinaryFormat.VERB_LINE:
+                        p.lineTo(in.getFloat(), in.getFloat());
+                        break;
+                    case SVGBinaryFormat.VERB_CUBIC:
+                        p.cubicTo(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+                        break;
+                    case SVGBinaryFormat.VERB_CLOSE:
+                        p.close();
+                        break;
+                    case SVGBinaryFormat.VERB_RMOVE:
+                        p.rMoveTo(in.getFloat(), in.getFloat());
+                        break;
+                    case SVGBinaryFormat.VERB_RLINE:
+                        p.rLineTo(in.getFloat(), in.getFloat());
+                        break;
+                    default:
+                        throw new SVGParseException("Unknown path verb");
+                }
+            }
+            return p;
+        }
+    }
+}
@@ -30,11 +30,34 @@ public class ParserHelper {
     public int pos;
     private int n;
 
+    /**
+     * The numbers read by the last call to parseNumbers, reused between calls.
+     */
+    private float[] numbers = new float[16];
+    private int numberCount;
+
+    /**
+     * Creates a helper with nothing to parse yet. Call {@link #reset(CharSequence, int)} before using it.
+     */
+    public ParserHelper() {
+        reset("", 0);
+    }
+
     public ParserHelper(CharSequence s, int pos) {
+        reset(s, pos);
+    }
+
+    /**
+     * Starts parsing a new string, so that a single helper can be used for many strings.
+     *
+     * @return this helper.
+     */
+    public ParserHelper reset(CharSequence s, int pos) {
         this.s = s;
         this.pos = pos;
         n = s.length();
-        current = s.charAt(pos);
+        current = pos < n ? s.charAt(pos) : '\0';
+        return this;
     }
 
     private char read() {
@@ -303,4 +326,77 @@ public class ParserHelper {
         skipNumberSeparator();
         return f;
     }
+
+    /**
+     * Parses a float from the whole of the given string, ignoring anything after the number (such as a unit).
+     *
+     * @return the number, or the default value if the string is null or doesn't start with a number.
+     */
+    public float parseFloat(CharSequence s, float defaultValue) {
+        if (s == null) {
+            return defaultValue;
+        }
+        reset(s, 0);
+        skipWhitespace();
+        float f = parseFloat();
+        return Float.isNaN(f) ? defaultValue : f;
+    }
+
+    /**
+     * Reads a list of numbers starting at the current position. The numbers may be separated by whitespace,
+     * commas or nothing at all if they are self-delimiting (ie. begin with a - sign). Reading stops at the
+     * first character that can't start a number, such as a path command or a closing parenthesis, and
+     * pos is left there.
+     * <p/>
+     * The numbers are kept in a buffer owned by this helper, so they are only valid until the next call.
+     *
+     * @return the count of numbers read, see {@link #getNumber(int)}.
+     */
+    public int parseNumbers() {
+        numberCount = 0;
+        skipListSeparator();
+        while (pos < n) {
+            char c = s.charAt(pos);
+            if (!((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.')) {
+                break;
+            }
+            float f = parseFloat();
+            if (Float.isNaN(f)) {
+                break;
+            }
+            if (numberCount == numbers.length) {
+                float[] grown = new float[numbers.length * 2];
+                System.arraycopy(numbers, 0, grown, 0, numberCount);
+                numbers = grown;
+            }
+            numbers[numberCount++] = f;
+            skipListSeparator();
+        }
+        return numberCount;
+    }
+
+    /**
+     * @return the count of numbers read by the last call to {@link #parseNumbers()}.
+     */
+    public int getNumberCount() {
+        return numberCount;
+    }
+
+    /**
+     * @return one of the numbers read by the last call to {@link #parseNumbers()}.
+     */
+    public float getNumber(int index) {
+        return numbers[index];
+    }
+
+    private void skipListSeparator() {
+        while (pos < n) {
+            char c = s.charAt(pos);
+            if (c == ',' || Character.isWhitespace(c)) {
+                advance();
+            } else {
+                break;
+            }
+        }
+    }
 }
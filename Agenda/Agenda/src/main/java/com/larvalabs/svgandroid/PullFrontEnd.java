@@ -0,0 +1,197 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import android.util.Xml;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.InputStream;
+import java.util.HashMap;
+
+/**
+ * Reads SVGs with the platform pull parser. The attributes of each element are read by index,
+ * and the names the parser knows about are swapped for shared instances, so the name
+ * comparisons in the handler usually match on identity.
+ *
+ * @author Larva Labs, LLC
+ */
+class PullFrontEnd implements SVGFrontEnd {
+
+    private static final String[] KNOWN_NAMES = {
+            // Elements
+            "svg", "defs", "g", "linearGradient", "radialGradient", "stop",
+            "rect", "line", "circle", "ellipse", "polygon", "polyline", "path",
+            // Attributes
+            "id", "style", "display", "transform", "gradientTransform", "href",
+            "x", "y", "width", "height", "x1", "y1", "x2", "y2", "cx", "cy", "r", "rx", "ry",
+            "offset", "points", "d", "opacity", "fill", "fill-opacity", "stroke", "stroke-opacity",
+            "stroke-width", "stroke-linecap", "stroke-linejoin", "stop-color", "stop-opacity"
+    };
+
+    private static final HashMap<String, String> names = new HashMap<String, String>();
+
+    static {
+        for (String name : KNOWN_NAMES) {
+            names.put(name, name);
+        }
+    }
+
+    /**
+     * @return the shared instance of the given name, or the name itself if it isn't one we know about.
+     */
+    private static String intern(String name) {
+        String known = names.get(name);
+        return known != null ? known : name;
+    }
+
+    @Override
+    public void parse(InputStream in, ContentHandler handler) throws Exception {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        parser.setInput(in, null);
+
+        PullAttributes atts = new PullAttributes(parser);
+        handler.startDocument();
+        int type = parser.getEventType();
+        while (type != XmlPullParser.END_DOCUMENT) {
+            if (type == XmlPullParser.START_TAG) {
+                String name = intern(parser.getName());
+                atts.reset();
+                handler.startElement(parser.getNamespace(), name, name, atts);
+            } else if (type == XmlPullParser.END_TAG) {
+                String name = intern(parser.getName());
+                handler.endElement(parser.getNamespace(), name, name);
+            }
+            type = parser.next();
+        }
+        handler.endDocument();
+    }
+
+    /**
+     * The attributes of the element the pull parser is on, read by index.
+     */
+    private static class PullAttributes implements Attributes {
+        private final XmlPullParser parser;
+        private String[] localNames = new String[16];
+        private int length;
+
+        private PullAttributes(XmlPullParser parser) {
+            this.parser = parser;
+        }
+
+        /**
+         * Reads the names of the attributes of the current element.
+         */
+        private void reset() {
+            length = parser.getAttributeCount();
+            if (length > localNames.length) {
+                localNames = new String[length * 2];
+            }
+            for (int i = 0; i < length; i++) {
+                localNames[i] = intern(parser.getAttributeName(i));
+            }
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String getURI(int index) {
+            return index >= 0 && index < length ? parser.getAttributeNamespace(index) : null;
+        }
+
+        @Override
+        public String getLocalName(int index) {
+            return index >= 0 && index < length ? localNames[index] : null;
+        }
+
+        @Override
+        public String getQName(int index) {
+            if (index < 0 || index >= length) {
+                return null;
+            }
+            String prefix = parser.getAttributePrefix(index);
+            return prefix != null ? prefix + ":" + localNames[index] : localNames[index];
+        }
+
+        @Override
+        public String getType(int index) {
+            return index >= 0 && index < length ? "CDATA" : null;
+        }
+
+        @Override
+        public String getValue(int index) {
+            return index >= 0 && index < length ? parser.getAttributeValue(index) : null;
+        }
+
+        @Override
+        public int getIndex(String uri, String localName) {
+            for (int i = 0; i < length; i++) {
+                if (localNames[i].equals(localName) && sameNamespace(uri, parser.getAttributeNamespace(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Compares namespaces the way SAX reports them, where no namespace may be either null or empty.
+         */
+        private static boolean sameNamespace(String a, String b) {
+            if (a == null || a.length() == 0) {
+                return b == null || b.length() == 0;
+            }
+            return a.equals(b);
+        }
+
+        @Override
+        public int getIndex(String qName) {
+            for (int i = 0; i < length; i++) {
+                if (getQName(i).equals(qName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(String uri, String localName) {
+            return getType(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getType(String qName) {
+            return getType(getIndex(qName));
+        }
+
+        @Override
+        public String getValue(String uri, String localName) {
+            return getValue(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getValue(String qName) {
+            return getValue(getIndex(qName));
+        }
+    }
+}
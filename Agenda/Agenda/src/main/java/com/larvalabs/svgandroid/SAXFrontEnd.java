@@ -0,0 +1,52 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.InputStream;
+
+/**
+ * Reads SVGs with the platform SAX parser. The factory is looked up once, as finding
+ * it goes through reflection, and isn't thread safe so it is only used while locked.
+ *
+ * @author Larva Labs, LLC
+ */
+class SAXFrontEnd implements SVGFrontEnd {
+
+    private SAXParserFactory factory;
+
+    private synchronized XMLReader newReader() throws Exception {
+        if (factory == null) {
+            factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+        }
+        return factory.newSAXParser().getXMLReader();
+    }
+
+    @Override
+    public void parse(InputStream in, ContentHandler handler) throws Exception {
+        XMLReader xr = newReader();
+        xr.setContentHandler(handler);
+        xr.parse(new InputSource(in));
+    }
+}
@@ -1,9 +1,13 @@
 package com.larvalabs.svgandroid;
 
+import android.graphics.Canvas;
 import android.graphics.Picture;
+import android.graphics.PorterDuff;
 import android.graphics.RectF;
 import android.graphics.drawable.PictureDrawable;
 
+import java.util.List;
+
 /*
 
    Licensed to the Apache Software Foundation (ASF) under one or more
@@ -45,6 +49,16 @@ public class SVG {
      */
     private RectF limits = null;
 
+    /**
+     * The layers the picture was recorded in, if it was parsed to be tinted.
+     */
+    private Picture[] layers = null;
+
+    /**
+     * Whether each of the layers is drawn in the tint color.
+     */
+    private boolean[] tintedLayers = null;
+
     /**
      * Construct a new SVG.
      * @param picture the parsed picture object.
@@ -63,6 +77,51 @@ public class SVG {
         this.limits = limits;
     }
 
+    /**
+     * Set the layers of a tintable SVG.
+     * @param layers the pictures that make up the SVG, in drawing order.
+     * @param tinted whether each of the layers was drawn in the search color.
+     */
+    void setLayers(List<Picture> layers, List<Boolean> tinted) {
+        this.layers = layers.toArray(new Picture[layers.size()]);
+        this.tintedLayers = new boolean[tinted.size()];
+        for (int i = 0; i < tintedLayers.length; i++) {
+            tintedLayers[i] = tinted.get(i);
+        }
+    }
+
+    /**
+     * Whether this SVG was parsed so that it can be drawn with a tint.
+     * @return true if {@link #drawTinted(Canvas, int)} will recolor the SVG.
+     */
+    public boolean isTintable() {
+        return layers != null;
+    }
+
+    /**
+     * Draw the SVG, replacing the search color it was parsed with by the given color.
+     * If the SVG isn't tintable, it is drawn as is.
+     * @param canvas the canvas to draw on.
+     * @param color the color to draw the search color parts in.
+     */
+    public void drawTinted(Canvas canvas, int color) {
+        if (layers == null) {
+            canvas.drawPicture(picture);
+            return;
+        }
+        for (int i = 0; i < layers.length; i++) {
+            if (tintedLayers[i]) {
+                // Keep the shape and opacity of the layer, but use the tint color
+                canvas.saveLayer(null, null, Canvas.ALL_SAVE_FLAG);
+                canvas.drawPicture(layers[i]);
+                canvas.drawColor(color, PorterDuff.Mode.SRC_IN);
+                canvas.restore();
+            } else {
+                canvas.drawPicture(layers[i]);
+            }
+        }
+    }
+
     /**
      * Create a picture drawable from the SVG.
      * @return the PictureDrawable.
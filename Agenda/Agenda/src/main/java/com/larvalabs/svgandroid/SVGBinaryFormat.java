@@ -0,0 +1,107 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+/**
+ * Constants describing the compiled (binary) form of an SVG, which is a display list of the
+ * drawing calls the parser would make. It is written at build time and replayed by
+ * {@link com.larvalabs.svgandroid.CompiledSVG CompiledSVG} without any XML or string parsing.
+ * <p/>
+ * All values are big-endian. The file starts with a header:
+ * <ul>
+ *     <li>int magic, short version
+ *     <li>int width, int height of the picture
+ *     <li>byte hasBounds, followed by four floats (left, top, right, bottom) if set
+ *     <li>byte hasLimits, followed by four floats (left, top, right, bottom) if set
+ * </ul>
+ * followed by a list of operations, each starting with its opcode byte and ending with {@link #OP_END}.
+ * Colors are stored as opaque RGB with a separate alpha byte, so that the color search and replace
+ * can be done when the file is loaded. Matrices are stored as the six affine values in
+ * <code>android.graphics.Matrix</code> order (scaleX, skewX, transX, skewY, scaleY, transY).
+ * <p/>
+ * This class doesn't depend on Android, so it can be used by the build.
+ *
+ * @author Larva Labs, LLC
+ */
+public final class SVGBinaryFormat {
+
+    public static final int MAGIC = 0x53564742; // "SVGB"
+    public static final short VERSION = 1;
+
+    /** End of the operation list. */
+    public static final byte OP_END = 0;
+    /** Save the canvas and concat a matrix: 6 floats. */
+    public static final byte OP_SAVE = 1;
+    /** Restore the canvas. */
+    public static final byte OP_RESTORE = 2;
+    /** Fill with a color: int color, byte alpha. */
+    public static final byte OP_FILL_COLOR = 3;
+    /** Fill with a previously defined gradient: short index. */
+    public static final byte OP_FILL_SHADER = 4;
+    /** Stroke with a color: int color, byte alpha, byte flags, then the attributes present in flags. */
+    public static final byte OP_STROKE = 5;
+    /**
+     * Define a linear gradient: short index, float x1, y1, x2, y2, int count, count int colors,
+     * count float positions, byte hasMatrix, 6 float matrix if set.
+     */
+    public static final byte OP_LINEAR_GRADIENT = 6;
+    /** Define a radial gradient: short index, float x, y, radius, then the same as a linear gradient. */
+    public static final byte OP_RADIAL_GRADIENT = 7;
+    /** Draw a rectangle: float left, top, right, bottom. */
+    public static final byte OP_RECT = 8;
+    /** Draw a line: float x1, y1, x2, y2. */
+    public static final byte OP_LINE = 9;
+    /** Draw a circle: float cx, cy, radius. */
+    public static final byte OP_CIRCLE = 10;
+    /** Draw an oval: float left, top, right, bottom. */
+    public static final byte OP_OVAL = 11;
+    /** Draw a path: int verb count, the verbs as bytes, int coordinate count, the coordinates as floats. */
+    public static final byte OP_PATH = 12;
+
+    /** Flag set on a stroke when it has a width: float width. */
+    public static final byte STROKE_WIDTH = 1;
+    /** Flag set on a stroke when it has a line cap: byte cap. */
+    public static final byte STROKE_CAP = 2;
+    /** Flag set on a stroke when it has a line join: byte join. */
+    public static final byte STROKE_JOIN = 4;
+
+    public static final byte CAP_BUTT = 0;
+    public static final byte CAP_ROUND = 1;
+    public static final byte CAP_SQUARE = 2;
+
+    public static final byte JOIN_MITER = 0;
+    public static final byte JOIN_ROUND = 1;
+    public static final byte JOIN_BEVEL = 2;
+
+    /** Path verb: moveTo, 2 coordinates. */
+    public static final byte VERB_MOVE = 0;
+    /** Path verb: lineTo, 2 coordinates. */
+    public static final byte VERB_LINE = 1;
+    /** Path verb: cubicTo, 6 coordinates. */
+    public static final byte VERB_CUBIC = 2;
+    /** Path verb: close, no coordinates. */
+    public static final byte VERB_CLOSE = 3;
+    /** Path verb: rMoveTo, 2 coordinates. */
+    public static final byte VERB_RMOVE = 4;
+    /** Path verb: rLineTo, 2 coordinates. */
+    public static final byte VERB_RLINE = 5;
+
+    private SVGBinaryFormat() {
+    }
+}
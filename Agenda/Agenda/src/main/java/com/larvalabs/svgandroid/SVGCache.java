@@ -0,0 +1,259 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process wide cache of parsed SVGs, so loading the same resource or asset again returns the
+ * SVG that was already built instead of parsing it again. The SVGs are only softly referenced, so
+ * they can still be reclaimed when memory is low, and only the most recently used ones are kept.
+ * <p/>
+ * Resources can change with the configuration, so the cache is cleared whenever the configuration
+ * of the resources changes. It can also be cleared with {@link #invalidate()}.
+ * <p/>
+ * The SVGs are shared between all callers, so they must not be modified.
+ *
+ * @author Larva Labs, LLC
+ * @see com.larvalabs.svgandroid.SVGParser
+ */
+public class SVGCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 32;
+
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private static final Map<Key, SoftReference<SVG>> entries = new LinkedHashMap<Key, SoftReference<SVG>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, SoftReference<SVG>> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private static final Configuration configuration = new Configuration();
+
+    private static int hits;
+    private static int misses;
+
+    private SVGCache() {
+    }
+
+    /**
+     * Gets an SVG from a resource, parsing it if it isn't in the cache.
+     *
+     * @param resources the Android context resources.
+     * @param resId the ID of the raw resource SVG.
+     * @return the parsed SVG.
+     * @throws SVGParseException if there is an error while parsing.
+     * @see SVGParser#getSVGFromResource(android.content.res.Resources, int)
+     */
+    public static SVG getSVGFromResource(Resources resources, int resId) throws SVGParseException {
+        Key key = new Key(resId, null, null, null, false);
+        SVG svg = get(resources, key);
+        if (svg == null) {
+            svg = put(key, SVGParser.getSVGFromResource(resources, resId));
+        }
+        return svg;
+    }
+
+    /**
+     * Gets an SVG from a resource, with a color swapped, parsing it if it isn't in the cache.
+     *
+     * @param resources the Android context resources.
+     * @param resId the ID of the raw resource SVG.
+     * @param searchColor the color in the SVG to replace.
+     * @param replaceColor the color with which to replace the search color.
+     * @return the parsed SVG.
+     * @throws SVGParseException if there is an error while parsing.
+     * @see SVGParser#getSVGFromResource(android.content.res.Resources, int, int, int)
+     */
+    public static SVG getSVGFromResource(Resources resources, int resId, int searchColor, int replaceColor) throws SVGParseException {
+        Key key = new Key(resId, null, searchColor, replaceColor, false);
+        SVG svg = get(resources, key);
+        if (svg == null) {
+            svg = put(key, SVGParser.getSVGFromResource(resources, resId, searchColor, replaceColor));
+        }
+        return svg;
+    }
+
+    /**
+     * Gets a tintable SVG from a resource, parsing it if it isn't in the cache.
+     *
+     * @param resources the Android context resources.
+     * @param resId the ID of the raw resource SVG.
+     * @param searchColor the color in the SVG that gets tinted.
+     * @return the parsed SVG.
+     * @throws SVGParseException if there is an error while parsing.
+     * @see SVGParser#getTintableSVGFromResource(android.content.res.Resources, int, int)
+     */
+    public static SVG getTintableSVGFromResource(Resources resources, int resId, int searchColor) throws SVGParseException {
+        Key key = new Key(resId, null, searchColor, null, true);
+        SVG svg = get(resources, key);
+        if (svg == null) {
+            svg = put(key, SVGParser.getTintableSVGFromResource(resources, resId, searchColor));
+        }
+        return svg;
+    }
+
+    /**
+     * Gets an SVG from an asset, parsing it if it isn't in the cache.
+     *
+     * @param resources the Android context resources, whose assets are used.
+     * @param svgPath the path to the SVG in the assets.
+     * @return the parsed SVG.
+     * @throws SVGParseException if there is an error while parsing.
+     * @throws IOException if there was a problem reading the file.
+     * @see SVGParser#getSVGFromAsset(android.content.res.AssetManager, String)
+     */
+    public static SVG getSVGFromAsset(Resources resources, String svgPath) throws SVGParseException, IOException {
+        Key key = new Key(0, svgPath, null, null, false);
+        SVG svg = get(resources, key);
+        if (svg == null) {
+            svg = put(key, SVGParser.getSVGFromAsset(resources.getAssets(), svgPath));
+        }
+        return svg;
+    }
+
+    /**
+     * Gets an SVG from an asset, with a color swapped, parsing it if it isn't in the cache.
+     *
+     * @param resources the Android context resources, whose assets are used.
+     * @param svgPath the path to the SVG in the assets.
+     * @param searchColor the color in the SVG to replace.
+     * @param replaceColor the color with which to replace the search color.
+     * @return the parsed SVG.
+     * @throws SVGParseException if there is an error while parsing.
+     * @throws IOException if there was a problem reading the file.
+     * @see SVGParser#getSVGFromAsset(android.content.res.AssetManager, String, int, int)
+     */
+    public static SVG getSVGFromAsset(Resources resources, String svgPath, int searchColor, int replaceColor) throws SVGParseException, IOException {
+        Key key = new Key(0, svgPath, searchColor, replaceColor, false);
+        SVG svg = get(resources, key);
+        if (svg == null) {
+            svg = put(key, SVGParser.getSVGFromAsset(resources.getAssets(), svgPath, searchColor, replaceColor));
+        }
+        return svg;
+    }
+
+    /**
+     * Sets the maximum number of SVGs kept in the cache, dropping the least recently used ones
+     * if there are more than that.
+     *
+     * @param maxEntries the number of SVGs to keep, 32 by default.
+     */
+    public static synchronized void setMaxEntries(int maxEntries) {
+        SVGCache.maxEntries = maxEntries;
+        while (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Removes all of the SVGs from the cache.
+     */
+    public static synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of times an SVG was served from the cache.
+     */
+    public static synchronized int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times an SVG had to be parsed.
+     */
+    public static synchronized int getMissCount() {
+        return misses;
+    }
+
+    private static synchronized SVG get(Resources resources, Key key) {
+        // The same resource can be different in another configuration
+        if (configuration.updateFrom(resources.getConfiguration()) != 0) {
+            entries.clear();
+        }
+
+        SoftReference<SVG> ref = entries.get(key);
+        SVG svg = ref != null ? ref.get() : null;
+        if (svg != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return svg;
+    }
+
+    private static synchronized SVG put(Key key, SVG svg) {
+        entries.put(key, new SoftReference<SVG>(svg));
+        return svg;
+    }
+
+    /**
+     * What an SVG was loaded from, and how.
+     */
+    private static class Key {
+        final int resId;
+        final String assetPath;
+        final Integer searchColor;
+        final Integer replaceColor;
+        final boolean tintable;
+
+        private Key(int resId, String assetPath, Integer searchColor, Integer replaceColor, boolean tintable) {
+            this.resId = resId;
+            this.assetPath = assetPath;
+            this.searchColor = searchColor;
+            this.replaceColor = replaceColor;
+            this.tintable = tintable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return resId == other.resId && tintable == other.tintable
+                    && equal(assetPath, other.assetPath)
+                    && equal(searchColor, other.searchColor)
+                    && equal(replaceColor, other.replaceColor);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + (assetPath != null ? assetPath.hashCode() : 0);
+            result = 31 * result + (searchColor != null ? searchColor.hashCode() : 0);
+            result = 31 * result + (replaceColor != null ? replaceColor.hashCode() : 0);
+            result = 31 * result + (tintable ? 1 : 0);
+            return result;
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.larvalabs.svgandroid;
+
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+import org.xml.sax.ContentHandler;
+
+import java.io.InputStream;
+
+/**
+ * Reads the XML of an SVG and reports its elements to the handler that does the drawing.
+ * Either front end produces the same picture, they only differ in how the XML is read.
+ *
+ * @author Larva Labs, LLC
+ * @see com.larvalabs.svgandroid.SVGParser#setFrontEnd(SVGFrontEnd)
+ */
+public interface SVGFrontEnd {
+
+    /**
+     * Reads the XML with the platform SAX parser. This is the default.
+     */
+    SVGFrontEnd SAX = new SAXFrontEnd();
+
+    /**
+     * Reads the XML with the platform pull parser, without going through the JAXP factories.
+     * SVGFrontEndTest checks that it reads the same documents as SAX.
+     */
+    SVGFrontEnd PULL = new PullFrontEnd();
+
+    /**
+     * Reads the SVG document, reporting the start and end of the document and of each element
+     * to the handler. Element and attribute names are reported as local names.
+     *
+     * @param in the SVG data.
+     * @param handler the handler to report the document to.
+     * @throws Exception if the data couldn't be read or isn't valid XML.
+     */
+    void parse(InputStream in, ContentHandler handler) throws Exception;
+}
@@ -5,13 +5,9 @@ import android.content.res.Resources;
 import android.graphics.*;
 import android.util.Log;
 import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,7 +36,8 @@ import java.util.HashMap;
 /**
  * Entry point for parsing SVG files for Android.
  * Use one of the various static methods for parsing SVGs by resource, asset or input stream.
- * Optionally, a single color can be searched and replaced in the SVG while parsing.
+ * Optionally, a single color can be searched and replaced in the SVG while parsing, or
+ * recorded separately so that it can be tinted to any color when the SVG is drawn.
  * You can also parse an svg path directly.
  *
  * @author Larva Labs, LLC
@@ -48,12 +45,32 @@ import java.util.HashMap;
  * @see #getSVGFromAsset(android.content.res.AssetManager, String)
  * @see #getSVGFromString(String)
  * @see #getSVGFromInputStream(java.io.InputStream)
+ * @see #getTintableSVGFromResource(android.content.res.Resources, int, int)
  * @see #parsePath(String)
  */
 public class SVGParser {
 
     static final String TAG = "SVGAndroid";
 
+    private static volatile SVGFrontEnd frontEnd = SVGFrontEnd.SAX;
+
+    /**
+     * Sets how the XML of the SVGs is read. Both front ends produce the same pictures, so this is
+     * mostly useful for comparing them.
+     *
+     * @param frontEnd the front end to use, {@link SVGFrontEnd#SAX} by default.
+     */
+    public static void setFrontEnd(SVGFrontEnd frontEnd) {
+        SVGParser.frontEnd = frontEnd;
+    }
+
+    /**
+     * @return the front end used to read the XML of the SVGs.
+     */
+    public static SVGFrontEnd getFrontEnd() {
+        return frontEnd;
+    }
+
     /**
      * Parse SVG data from an input stream.
      *
@@ -162,6 +179,46 @@ public class SVGParser {
         return svg;
     }
 
+    /**
+     * Parse SVG data from an input stream, keeping the parts drawn in a single color separate
+     * so that they can be drawn in any color with {@link SVG#drawTinted(Canvas, int)}.
+     *
+     * @param svgData     the input stream, with SVG XML data in UTF-8 character encoding.
+     * @param searchColor the color in the SVG that can be tinted.
+     * @return the parsed SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if there is an error while parsing.
+     */
+    public static SVG getTintableSVGFromInputStream(InputStream svgData, int searchColor) throws SVGParseException {
+        return SVGParser.parse(svgData, searchColor, null, false, true);
+    }
+
+    /**
+     * Parse SVG data from a string, keeping the parts drawn in a single color separate
+     * so that they can be drawn in any color with {@link SVG#drawTinted(Canvas, int)}.
+     *
+     * @param svgData     the string containing SVG XML data.
+     * @param searchColor the color in the SVG that can be tinted.
+     * @return the parsed SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if there is an error while parsing.
+     */
+    public static SVG getTintableSVGFromString(String svgData, int searchColor) throws SVGParseException {
+        return SVGParser.parse(new ByteArrayInputStream(svgData.getBytes()), searchColor, null, false, true);
+    }
+
+    /**
+     * Parse SVG data from an Android application resource, keeping the parts drawn in a single color
+     * separate so that they can be drawn in any color with {@link SVG#drawTinted(Canvas, int)}.
+     *
+     * @param resources   the Android context resources.
+     * @param resId       the ID of the raw resource SVG.
+     * @param searchColor the color in the SVG that can be tinted.
+     * @return the parsed SVG.
+     * @throws com.larvalabs.svgandroid.SVGParseException if there is an error while parsing.
+     */
+    public static SVG getTintableSVGFromResource(Resources resources, int resId, int searchColor) throws SVGParseException {
+        return SVGParser.parse(resources.openRawResource(resId), searchColor, null, false, true);
+    }
+
     /**
      * Parses a single SVG path and returns it as a <code>android.graphics.Path</code> object.
      * An example path is <code>M250,150L150,350L350,350Z</code>, which draws a triangle.
@@ -169,24 +226,29 @@ public class SVGParser {
      * @param pathString the SVG path, see the specification <a href="http://www.w3.org/TR/SVG/paths.html">here</a>.
      */
     public static Path parsePath(String pathString) {
-        return doPath(pathString);
+        return doPath(pathString, new ParserHelper());
     }
 
     private static SVG parse(InputStream in, Integer searchColor, Integer replaceColor, boolean whiteMode) throws SVGParseException {
+        return parse(in, searchColor, replaceColor, whiteMode, false);
+    }
+
+    private static SVG parse(InputStream in, Integer searchColor, Integer replaceColor, boolean whiteMode,
+                             boolean tintMode) throws SVGParseException {
 //        Util.debug("Parsing SVG...");
         try {
             long start = System.currentTimeMillis();
-            SAXParserFactory spf = SAXParserFactory.newInstance();
-            SAXParser sp = spf.newSAXParser();
-            XMLReader xr = sp.getXMLReader();
             final Picture picture = new Picture();
             SVGHandler handler = new SVGHandler(picture);
             handler.setColorSwap(searchColor, replaceColor);
             handler.setWhiteMode(whiteMode);
-            xr.setContentHandler(handler);
-            xr.parse(new InputSource(in));
+            handler.setTintMode(tintMode);
+            frontEnd.parse(in, handler);
 //        Util.debug("Parsing complete in " + (System.currentTimeMillis() - start) + " millis.");
             SVG result = new SVG(picture, handler.bounds);
+            if (tintMode) {
+                result.setLayers(handler.layers, handler.layerTinted);
+            }
             // Skip bounds if it was an empty pic
             if (!Float.isInfinite(handler.limits.top)) {
                 result.setLimits(handler.limits);
@@ -197,101 +259,23 @@ public class SVGParser {
         }
     }
 
-    private static NumberParse parseNumbers(String s) {
-        //Util.debug("Parsing numbers from: '" + s + "'");
-        int n = s.length();
-        int p = 0;
-        ArrayList<Float> numbers = new ArrayList<Float>();
-        boolean skipChar = false;
-        for (int i = 1; i < n; i++) {
-            if (skipChar) {
-                skipChar = false;
-                continue;
-            }
-            char c = s.charAt(i);
-            switch (c) {
-                // This ends the parsing, as we are on the next element
-                case 'M':
-                case 'm':
-                case 'Z':
-                case 'z':
-                case 'L':
-                case 'l':
-                case 'H':
-                case 'h':
-                case 'V':
-                case 'v':
-                case 'C':
-                case 'c':
-                case 'S':
-                case 's':
-                case 'Q':
-                case 'q':
-                case 'T':
-                case 't':
-                case 'a':
-                case 'A':
-                case ')': {
-                    String str = s.substring(p, i);
-                    if (str.trim().length() > 0) {
-                        //Util.debug("  Last: " + str);
-                        Float f = Float.parseFloat(str);
-                        numbers.add(f);
-                    }
-                    p = i;
-                    return new NumberParse(numbers, p);
-                }
-                case '\n':
-                case '\t':
-                case ' ':
-                case ',':
-                case '-': {
-                    String str = s.substring(p, i);
-                    // Just keep moving if multiple whitespace
-                    if (str.trim().length() > 0) {
-                        //Util.debug("  Next: " + str);
-                        Float f = Float.parseFloat(str);
-                        numbers.add(f);
-                        if (c == '-') {
-                            p = i;
-                        } else {
-                            p = i + 1;
-                            skipChar = true;
-                        }
-                    } else {
-                        p++;
-                    }
-                    break;
-                }
-            }
-        }
-        String last = s.substring(p);
-        if (last.length() > 0) {
-            //Util.debug("  Last: " + last);
-            try {
-                numbers.add(Float.parseFloat(last));
-            } catch (NumberFormatException nfe) {
-                // Just white-space, forget it
-            }
-            p = s.length();
-        }
-        return new NumberParse(numbers, p);
-    }
-
-    private static Matrix parseTransform(String s) {
+    /**
+     * Parses a transform attribute, using the given helper to read the numbers.
+     */
+    private static Matrix parseTransform(String s, ParserHelper ph) {
         if (s.startsWith("matrix(")) {
-            NumberParse np = parseNumbers(s.substring("matrix(".length()));
-            if (np.numbers.size() == 6) {
+            int count = ph.reset(s, "matrix(".length()).parseNumbers();
+            if (count == 6) {
                 Matrix matrix = new Matrix();
                 matrix.setValues(new float[]{
                         // Row 1
-                        np.numbers.get(0),
-                        np.numbers.get(2),
-                        np.numbers.get(4),
+                        ph.getNumber(0),
+                        ph.getNumber(2),
+                        ph.getNumber(4),
                         // Row 2
-                        np.numbers.get(1),
-                        np.numbers.get(3),
-                        np.numbers.get(5),
+                        ph.getNumber(1),
+                        ph.getNumber(3),
+                        ph.getNumber(5),
                         // Row 3
                         0,
                         0,
@@ -300,54 +284,54 @@ public class SVGParser {
                 return matrix;
             }
         } else if (s.startsWith("translate(")) {
-            NumberParse np = parseNumbers(s.substring("translate(".length()));
-            if (np.numbers.size() > 0) {
-                float tx = np.numbers.get(0);
+            int count = ph.reset(s, "translate(".length()).parseNumbers();
+            if (count > 0) {
+                float tx = ph.getNumber(0);
                 float ty = 0;
-                if (np.numbers.size() > 1) {
-                    ty = np.numbers.get(1);
+                if (count > 1) {
+                    ty = ph.getNumber(1);
                 }
                 Matrix matrix = new Matrix();
                 matrix.postTranslate(tx, ty);
                 return matrix;
             }
         } else if (s.startsWith("scale(")) {
-            NumberParse np = parseNumbers(s.substring("scale(".length()));
-            if (np.numbers.size() > 0) {
-                float sx = np.numbers.get(0);
+            int count = ph.reset(s, "scale(".length()).parseNumbers();
+            if (count > 0) {
+                float sx = ph.getNumber(0);
                 float sy = 0;
-                if (np.numbers.size() > 1) {
-                    sy = np.numbers.get(1);
+                if (count > 1) {
+                    sy = ph.getNumber(1);
                 }
                 Matrix matrix = new Matrix();
                 matrix.postScale(sx, sy);
                 return matrix;
             }
         } else if (s.startsWith("skewX(")) {
-            NumberParse np = parseNumbers(s.substring("skewX(".length()));
-            if (np.numbers.size() > 0) {
-                float angle = np.numbers.get(0);
+            int count = ph.reset(s, "skewX(".length()).parseNumbers();
+            if (count > 0) {
+                float angle = ph.getNumber(0);
                 Matrix matrix = new Matrix();
                 matrix.postSkew((float) Math.tan(angle), 0);
                 return matrix;
             }
         } else if (s.startsWith("skewY(")) {
-            NumberParse np = parseNumbers(s.substring("skewY(".length()));
-            if (np.numbers.size() > 0) {
-                float angle = np.numbers.get(0);
+            int count = ph.reset(s, "skewY(".length()).parseNumbers();
+            if (count > 0) {
+                float angle = ph.getNumber(0);
                 Matrix matrix = new Matrix();
                 matrix.postSkew(0, (float) Math.tan(angle));
                 return matrix;
             }
         } else if (s.startsWith("rotate(")) {
-            NumberParse np = parseNumbers(s.substring("rotate(".length()));
-            if (np.numbers.size() > 0) {
-                float angle = np.numbers.get(0);
+            int count = ph.reset(s, "rotate(".length()).parseNumbers();
+            if (count > 0) {
+                float angle = ph.getNumber(0);
                 float cx = 0;
                 float cy = 0;
-                if (np.numbers.size() > 2) {
-                    cx = np.numbers.get(1);
-                    cy = np.numbers.get(2);
+                if (count > 2) {
+                    cx = ph.getNumber(1);
+                    cy = ph.getNumber(2);
                 }
                 Matrix matrix = new Matrix();
                 matrix.postTranslate(cx, cy);
@@ -378,11 +362,12 @@ public class SVGParser {
      * <p/>
      * Numbers are separate by whitespace, comma or nothing at all (!) if they are self-delimiting, (ie. begin with a - sign)
      *
-     * @param s the path string from the XML
+     * @param s  the path string from the XML
+     * @param ph the helper to read the path with
      */
-    private static Path doPath(String s) {
+    private static Path doPath(String s, ParserHelper ph) {
         int n = s.length();
-        ParserHelper ph = new ParserHelper(s, 0);
+        ph.reset(s, 0);
         ph.skipWhitespace();
         Path p = new Path();
         float lastX = 0;
@@ -568,16 +553,6 @@ public class SVGParser {
         // todo - not implemented yet, may be very hard to do using Android drawing facilities.
     }
 
-    private static NumberParse getNumberParseAttr(String name, Attributes attributes) {
-        int n = attributes.getLength();
-        for (int i = 0; i < n; i++) {
-            if (attributes.getLocalName(i).equals(name)) {
-                return parseNumbers(attributes.getValue(i));
-            }
-        }
-        return null;
-    }
-
     private static String getStringAttr(String name, Attributes attributes) {
         int n = attributes.getLength();
         for (int i = 0; i < n; i++) {
@@ -588,21 +563,9 @@ public class SVGParser {
         return null;
     }
 
-    private static Float getFloatAttr(String name, Attributes attributes) {
-        return getFloatAttr(name, attributes, null);
-    }
-
-    private static Float getFloatAttr(String name, Attributes attributes, Float defaultValue) {
-        String v = getStringAttr(name, attributes);
-        if (v == null) {
-            return defaultValue;
-        } else {
-            if (v.endsWith("px")) {
-                v = v.substring(0, v.length() - 2);
-            }
-//            Log.d(TAG, "Float parsing '" + name + "=" + v + "'");
-            return Float.parseFloat(v);
-        }
+    private static float getFloatAttr(String name, Attributes attributes, ParserHelper ph, float defaultValue) {
+        // The helper stops at the end of the number, so units like "px" are skipped
+        return ph.parseFloat(getStringAttr(name, attributes), defaultValue);
     }
 
     private static Integer getHexAttr(String name, Attributes attributes) {
@@ -620,25 +583,6 @@ public class SVGParser {
         }
     }
 
-    private static class NumberParse {
-        private ArrayList<Float> numbers;
-        private int nextCmd;
-
-        public NumberParse(ArrayList<Float> numbers, int nextCmd) {
-            this.numbers = numbers;
-            this.nextCmd = nextCmd;
-        }
-
-        public int getNextCmd() {
-            return nextCmd;
-        }
-
-        public float getNumber(int index) {
-            return numbers.get(index);
-        }
-
-    }
-
     private static class Gradient {
         String id;
         String xlink;
@@ -698,13 +642,23 @@ public class SVGParser {
     private static class Properties {
         StyleSet styles = null;
         Attributes atts;
+        ParserHelper ph;
+
+        private Properties(ParserHelper ph) {
+            this.ph = ph;
+        }
 
-        private Properties(Attributes atts) {
+        /**
+         * Reads the properties of another element, so one instance can be used for a whole document.
+         */
+        private Properties reset(Attributes atts) {
             this.atts = atts;
+            styles = null;
             String styleAttr = getStringAttr("style", atts);
             if (styleAttr != null) {
                 styles = new StyleSet(styleAttr);
             }
+            return this;
         }
 
         public String getAttr(String name) {
@@ -736,26 +690,8 @@ public class SVGParser {
             }
         }
 
-        public Float getFloat(String name, float defaultValue) {
-            Float v = getFloat(name);
-            if (v == null) {
-                return defaultValue;
-            } else {
-                return v;
-            }
-        }
-
-        public Float getFloat(String name) {
-            String v = getAttr(name);
-            if (v == null) {
-                return null;
-            } else {
-                try {
-                    return Float.parseFloat(v);
-                } catch (NumberFormatException nfe) {
-                    return null;
-                }
-            }
+        public float getFloat(String name, float defaultValue) {
+            return ph.parseFloat(getAttr(name), defaultValue);
         }
     }
 
@@ -774,7 +710,21 @@ public class SVGParser {
 
         boolean whiteMode = false;
 
-        boolean pushed = false;
+        // In tint mode, the drawing is split in to layers so that the
+        // parts in the search color can be recolored when drawn
+        boolean tintMode = false;
+        ArrayList<Picture> layers = new ArrayList<Picture>();
+        ArrayList<Boolean> layerTinted = new ArrayList<Boolean>();
+        int width;
+        int height;
+
+        // The transform of each group and element we are inside of, outermost first.
+        // Null for the ones without a transform attribute, which don't save the canvas.
+        ArrayList<Matrix> transforms = new ArrayList<Matrix>();
+
+        // Scratch number parser and properties, reused for every element
+        ParserHelper ph = new ParserHelper();
+        Properties props = new Properties(ph);
 
         HashMap<String, Shader> gradientMap = new HashMap<String, Shader>();
         HashMap<String, Gradient> gradientRefMap = new HashMap<String, Gradient>();
@@ -795,6 +745,34 @@ public class SVGParser {
             this.whiteMode = whiteMode;
         }
 
+        public void setTintMode(boolean tintMode) {
+            this.tintMode = tintMode;
+        }
+
+        /**
+         * Makes sure the next thing drawn goes in to a layer that is (or isn't) tinted,
+         * starting a new layer if needed. Does nothing unless we are in tint mode.
+         */
+        private void selectLayer(boolean tinted) {
+            if (!tintMode || (!layers.isEmpty() && layerTinted.get(layerTinted.size() - 1) == tinted)) {
+                return;
+            }
+            if (!layers.isEmpty()) {
+                layers.get(layers.size() - 1).endRecording();
+            }
+            Picture layer = new Picture();
+            canvas = layer.beginRecording(width, height);
+            // Carry over the transforms of the element being drawn and its groups
+            for (Matrix transform : transforms) {
+                if (transform != null) {
+                    canvas.save();
+                    canvas.concat(transform);
+                }
+            }
+            layers.add(layer);
+            layerTinted.add(tinted);
+        }
+
         @Override
         public void startDocument() throws SAXException {
             // Set up prior to parsing a doc
@@ -810,6 +788,7 @@ public class SVGParser {
                 return false;
             }
             if (whiteMode) {
+                selectLayer(false);
                 paint.setStyle(Paint.Style.FILL);
                 paint.setColor(0xFFFFFFFF);
                 return true;
@@ -821,6 +800,7 @@ public class SVGParser {
                 Shader shader = gradients.get(id);
                 if (shader != null) {
                     //Util.debug("Found shader!");
+                    selectLayer(false);
                     paint.setShader(shader);
                     paint.setStyle(Paint.Style.FILL);
                     return true;
@@ -837,6 +817,7 @@ public class SVGParser {
                     return true;
                 } else if (atts.getString("fill") == null && atts.getString("stroke") == null) {
                     // Default is black fill
+                    selectLayer(false);
                     paint.setStyle(Paint.Style.FILL);
                     paint.setColor(0xFF000000);
                     return true;
@@ -857,10 +838,10 @@ public class SVGParser {
             if (color != null) {
                 doColor(atts, color, false);
                 // Check for other stroke attributes
-                Float width = atts.getFloat("stroke-width");
+                float width = atts.getFloat("stroke-width", Float.NaN);
                 // Set defaults
 
-                if (width != null) {
+                if (!Float.isNaN(width)) {
                     paint.setStrokeWidth(width);
                 }
                 String linecap = atts.getString("stroke-linecap");
@@ -890,18 +871,18 @@ public class SVGParser {
             gradient.id = getStringAttr("id", atts);
             gradient.isLinear = isLinear;
             if (isLinear) {
-                gradient.x1 = getFloatAttr("x1", atts, 0f);
-                gradient.x2 = getFloatAttr("x2", atts, 0f);
-                gradient.y1 = getFloatAttr("y1", atts, 0f);
-                gradient.y2 = getFloatAttr("y2", atts, 0f);
+                gradient.x1 = getFloatAttr("x1", atts, ph, 0f);
+                gradient.x2 = getFloatAttr("x2", atts, ph, 0f);
+                gradient.y1 = getFloatAttr("y1", atts, ph, 0f);
+                gradient.y2 = getFloatAttr("y2", atts, ph, 0f);
             } else {
-                gradient.x = getFloatAttr("cx", atts, 0f);
-                gradient.y = getFloatAttr("cy", atts, 0f);
-                gradient.radius = getFloatAttr("r", atts, 0f);
+                gradient.x = getFloatAttr("cx", atts, ph, 0f);
+                gradient.y = getFloatAttr("cy", atts, ph, 0f);
+                gradient.radius = getFloatAttr("r", atts, ph, 0f);
             }
             String transform = getStringAttr("gradientTransform", atts);
             if (transform != null) {
-                gradient.matrix = parseTransform(transform);
+                gradient.matrix = parseTransform(transform, ph);
             }
             String xlink = getStringAttr("href", atts);
             if (xlink != null) {
@@ -915,15 +896,18 @@ public class SVGParser {
 
         private void doColor(Properties atts, Integer color, boolean fillMode) {
             int c = (0xFFFFFF & color) | 0xFF000000;
-            if (searchColor != null && searchColor.intValue() == c) {
+            boolean matched = searchColor != null && searchColor.intValue() == c;
+            if (tintMode) {
+                selectLayer(matched);
+            } else if (matched) {
                 c = replaceColor;
             }
             paint.setColor(c);
-            Float opacity = atts.getFloat("opacity");
-            if (opacity == null) {
-                opacity = atts.getFloat(fillMode ? "fill-opacity" : "stroke-opacity");
+            float opacity = atts.getFloat("opacity", Float.NaN);
+            if (Float.isNaN(opacity)) {
+                opacity = atts.getFloat(fillMode ? "fill-opacity" : "stroke-opacity", Float.NaN);
             }
-            if (opacity == null) {
+            if (Float.isNaN(opacity)) {
                 paint.setAlpha(255);
             } else {
                 paint.setAlpha((int) (255 * opacity));
@@ -962,16 +946,21 @@ public class SVGParser {
 
         private void pushTransform(Attributes atts) {
             final String transform = getStringAttr("transform", atts);
-            pushed = transform != null;
-            if (pushed) {
-                final Matrix matrix = parseTransform(transform);
+            Matrix matrix = null;
+            if (transform != null) {
+                matrix = parseTransform(transform, ph);
+                if (matrix == null) {
+                    // Still save, so the restore matches
+                    matrix = new Matrix();
+                }
                 canvas.save();
                 canvas.concat(matrix);
             }
+            transforms.add(matrix);
         }
 
         private void popTransform() {
-            if (pushed) {
+            if (!transforms.isEmpty() && transforms.remove(transforms.size() - 1) != null) {
                 canvas.restore();
             }
         }
@@ -983,24 +972,21 @@ public class SVGParser {
             // Ignore everything but rectangles in bounds mode
             if (boundsMode) {
                 if (localName.equals("rect")) {
-                    Float x = getFloatAttr("x", atts);
-                    if (x == null) {
-                        x = 0f;
-                    }
-                    Float y = getFloatAttr("y", atts);
-                    if (y == null) {
-                        y = 0f;
-                    }
-                    Float width = getFloatAttr("width", atts);
-                    Float height = getFloatAttr("height", atts);
+                    float x = getFloatAttr("x", atts, ph, 0f);
+                    float y = getFloatAttr("y", atts, ph, 0f);
+                    float width = getFloatAttr("width", atts, ph, 0f);
                     bounds = new RectF(x, y, x + width, y + width);
                 }
                 return;
             }
             if (localName.equals("svg")) {
-                int width = (int) Math.ceil(getFloatAttr("width", atts));
-                int height = (int) Math.ceil(getFloatAttr("height", atts));
-                canvas = picture.beginRecording(width, height);
+                width = (int) Math.ceil(getFloatAttr("width", atts, ph, 0f));
+                height = (int) Math.ceil(getFloatAttr("height", atts, ph, 0f));
+                if (tintMode) {
+                    selectLayer(false);
+                } else {
+                    canvas = picture.beginRecording(width, height);
+                }
             } else if (localName.equals("defs")) {
                 // Ignore
             } else if (localName.equals("linearGradient")) {
@@ -1009,7 +995,7 @@ public class SVGParser {
                 gradient = doGradient(false, atts);
             } else if (localName.equals("stop")) {
                 if (gradient != null) {
-                    float offset = getFloatAttr("offset", atts);
+                    float offset = getFloatAttr("offset", atts, ph, 0f);
                     String styles = getStringAttr("style", atts);
                     StyleSet styleSet = new StyleSet(styles);
                     String colorStyle = styleSet.getStyle("stop-color");
@@ -1023,7 +1009,7 @@ public class SVGParser {
                     }
                     String opacityStyle = styleSet.getStyle("stop-opacity");
                     if (opacityStyle != null) {
-                        float alpha = Float.parseFloat(opacityStyle);
+                        float alpha = ph.parseFloat(opacityStyle, 1f);
                         int alphaInt = Math.round(255 * alpha);
                         color |= (alphaInt << 24);
                     } else {
@@ -1037,6 +1023,8 @@ public class SVGParser {
                 if ("bounds".equalsIgnoreCase(getStringAttr("id", atts))) {
                     boundsMode = true;
                 }
+                // The group's transform applies to everything inside of it
+                pushTransform(atts);
                 if (hidden) {
                     hiddenLevel++;
                     //Util.debug("Hidden up: " + hiddenLevel);
@@ -1050,18 +1038,12 @@ public class SVGParser {
                     }
                 }
             } else if (!hidden && localName.equals("rect")) {
-                Float x = getFloatAttr("x", atts);
-                if (x == null) {
-                    x = 0f;
-                }
-                Float y = getFloatAttr("y", atts);
-                if (y == null) {
-                    y = 0f;
-                }
-                Float width = getFloatAttr("width", atts);
-                Float height = getFloatAttr("height", atts);
+                float x = getFloatAttr("x", atts, ph, 0f);
+                float y = getFloatAttr("y", atts, ph, 0f);
+                float width = getFloatAttr("width", atts, ph, 0f);
+                float height = getFloatAttr("height", atts, ph, 0f);
                 pushTransform(atts);
-                Properties props = new Properties(atts);
+                props.reset(atts);
                 if (doFill(props, gradientMap)) {
                     doLimits(x, y, width, height);
                     canvas.drawRect(x, y, x + width, y + height, paint);
@@ -1071,11 +1053,11 @@ public class SVGParser {
                 }
                 popTransform();
             } else if (!hidden && localName.equals("line")) {
-                Float x1 = getFloatAttr("x1", atts);
-                Float x2 = getFloatAttr("x2", atts);
-                Float y1 = getFloatAttr("y1", atts);
-                Float y2 = getFloatAttr("y2", atts);
-                Properties props = new Properties(atts);
+                float x1 = getFloatAttr("x1", atts, ph, 0f);
+                float x2 = getFloatAttr("x2", atts, ph, 0f);
+                float y1 = getFloatAttr("y1", atts, ph, 0f);
+                float y2 = getFloatAttr("y2", atts, ph, 0f);
+                props.reset(atts);
                 if (doStroke(props)) {
                     pushTransform(atts);
                     doLimits(x1, y1);
@@ -1084,12 +1066,12 @@ public class SVGParser {
                     popTransform();
                 }
             } else if (!hidden && localName.equals("circle")) {
-                Float centerX = getFloatAttr("cx", atts);
-                Float centerY = getFloatAttr("cy", atts);
-                Float radius = getFloatAttr("r", atts);
-                if (centerX != null && centerY != null && radius != null) {
+                float centerX = getFloatAttr("cx", atts, ph, Float.NaN);
+                float centerY = getFloatAttr("cy", atts, ph, Float.NaN);
+                float radius = getFloatAttr("r", atts, ph, Float.NaN);
+                if (!Float.isNaN(centerX) && !Float.isNaN(centerY) && !Float.isNaN(radius)) {
                     pushTransform(atts);
-                    Properties props = new Properties(atts);
+                    props.reset(atts);
                     if (doFill(props, gradientMap)) {
                         doLimits(centerX - radius, centerY - radius);
                         doLimits(centerX + radius, centerY + radius);
@@ -1101,13 +1083,13 @@ public class SVGParser {
                     popTransform();
                 }
             } else if (!hidden && localName.equals("ellipse")) {
-                Float centerX = getFloatAttr("cx", atts);
-                Float centerY = getFloatAttr("cy", atts);
-                Float radiusX = getFloatAttr("rx", atts);
-                Float radiusY = getFloatAttr("ry", atts);
-                if (centerX != null && centerY != null && radiusX != null && radiusY != null) {
+                float centerX = getFloatAttr("cx", atts, ph, Float.NaN);
+                float centerY = getFloatAttr("cy", atts, ph, Float.NaN);
+                float radiusX = getFloatAttr("rx", atts, ph, Float.NaN);
+                float radiusY = getFloatAttr("ry", atts, ph, Float.NaN);
+                if (!Float.isNaN(centerX) && !Float.isNaN(centerY) && !Float.isNaN(radiusX) && !Float.isNaN(radiusY)) {
                     pushTransform(atts);
-                    Properties props = new Properties(atts);
+                    props.reset(atts);
                     rect.set(centerX - radiusX, centerY - radiusY, centerX + radiusX, centerY + radiusY);
                     if (doFill(props, gradientMap)) {
                         doLimits(centerX - radiusX, centerY - radiusY);
@@ -1120,23 +1102,24 @@ public class SVGParser {
                     popTransform();
                 }
             } else if (!hidden && (localName.equals("polygon") || localName.equals("polyline"))) {
-                NumberParse numbers = getNumberParseAttr("points", atts);
-                if (numbers != null) {
-                    Path p = new Path();
-                    ArrayList<Float> points = numbers.numbers;
-                    if (points.size() > 1) {
-                        pushTransform(atts);
-                        Properties props = new Properties(atts);
-                        p.moveTo(points.get(0), points.get(1));
-                        for (int i = 2; i < points.size(); i += 2) {
-                            float x = points.get(i);
-                            float y = points.get(i + 1);
+                String pointsString = getStringAttr("points", atts);
+                if (pointsString != null) {
+                    int count = ph.reset(pointsString, 0).parseNumbers();
+                    if (count > 1) {
+                        // Build the path first, the transform reuses the number buffer
+                        Path p = new Path();
+                        p.moveTo(ph.getNumber(0), ph.getNumber(1));
+                        for (int i = 2; i + 1 < count; i += 2) {
+                            float x = ph.getNumber(i);
+                            float y = ph.getNumber(i + 1);
                             p.lineTo(x, y);
                         }
                         // Don't close a polyline
                         if (localName.equals("polygon")) {
                             p.close();
                         }
+                        pushTransform(atts);
+                        props.reset(atts);
                         if (doFill(props, gradientMap)) {
                             doLimits(p);
                             canvas.drawPath(p, paint);
@@ -1148,9 +1131,9 @@ public class SVGParser {
                     }
                 }
             } else if (!hidden && localName.equals("path")) {
-                Path p = doPath(getStringAttr("d", atts));
+                Path p = doPath(getStringAttr("d", atts), ph);
                 pushTransform(atts);
-                Properties props = new Properties(atts);
+                props.reset(atts);
                 if (doFill(props, gradientMap)) {
                     doLimits(p);
                     canvas.drawPath(p, paint);
@@ -1173,6 +1156,14 @@ public class SVGParser {
         public void endElement(String namespaceURI, String localName, String qName)
                 throws SAXException {
             if (localName.equals("svg")) {
+                if (tintMode) {
+                    // Also put the layers together, for drawing without a tint
+                    layers.get(layers.size() - 1).endRecording();
+                    canvas = picture.beginRecording(width, height);
+                    for (Picture layer : layers) {
+                        canvas.drawPicture(layer);
+                    }
+                }
                 picture.endRecording();
             } else if (localName.equals("linearGradient")) {
                 if (gradient.id != null) {
@@ -1233,6 +1224,7 @@ public class SVGParser {
                 if (boundsMode) {
                     boundsMode = false;
                 }
+                popTransform();
                 // Break out of hidden mode
                 if (hidden) {
                     hiddenLevel--;
@@ -20,6 +20,9 @@
  * Android with this library.
  *
  * See the {@link com.larvalabs.svgandroid.SVGParser SVGParser} class for instructions on how to use the parser.
+ * SVGs can also be compiled at build time and loaded with the {@link com.larvalabs.svgandroid.CompiledSVG CompiledSVG}
+ * class, which skips the XML parsing altogether. SVGs that are loaded repeatedly can be shared through the
+ * {@link com.larvalabs.svgandroid.SVGCache SVGCache} class.
  *
  * @see com.larvalabs.svgandroid.SVGParser
  */
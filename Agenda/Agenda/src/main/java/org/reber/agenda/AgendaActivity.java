@@ -49,6 +49,12 @@ public class AgendaActivity extends Activity {
     private CalendarUtilities mCalendarUtils;
     private List<AndroidCalendar> mAvailableCalendars;
 
+    /**
+     * The list loads itself when it is created, so it only needs to be
+     * refreshed when we come back from somewhere else, like the settings
+     */
+    private boolean mRefreshOnResume;
+
     /** Called when the activity is first created. */
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -121,11 +127,17 @@ public class AgendaActivity extends Activity {
     protected void onResume() {
         super.onResume();
 
-        if (frag != null) {
+        if (frag != null && mRefreshOnResume) {
             frag.notifyUtilUpdated();
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mRefreshOnResume = true;
+    }
+
     @Override
     protected void onPostCreate(Bundle savedInstanceState) {
         super.onPostCreate(savedInstanceState);
@@ -24,9 +24,7 @@ import org.reber.agenda.util.CalendarUtilities;
 import org.reber.agenda.util.Constants;
 
 import android.app.Activity;
-import android.app.AlarmManager;
 import android.app.Dialog;
-import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -35,7 +33,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.WindowManager;
@@ -128,7 +125,6 @@ public class AgendaConfigure extends Activity {
 						} catch (NoSuchElementException e) {
 							// This shouldn't ever happen because we save the calendars in the previous step, but just in case
 						}
-						AgendaWidgetProvider.saveUtil(util);
 					}
 				});
 				dlg.show();
@@ -279,12 +275,8 @@ public class AgendaConfigure extends Activity {
 			edit.putInt(Constants.Widget.VERSION, getResources().getIntArray(R.array.versions)[0]);
 			edit.putInt(Constants.Widget.NUM_DAYS, numDaysInt);
 			edit.commit();
-			util.setUse24Hour(twentyFourHourCheckBox.isChecked());
 
-			AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(AgendaConfigure.this);
-			AgendaWidgetProvider.updateAppWidget(AgendaConfigure.this, appWidgetManager, mAppWidgetId, 0);
-
-			AgendaWidgetProvider.saveUtil(util);
+			WidgetRefresher.refresh(AgendaConfigure.this, new int[] { mAppWidgetId }, 0, null);
 
 			Intent widgetUpdate = new Intent();
 			widgetUpdate.setAction(AgendaWidgetProvider.WIDGET_UPDATE);
@@ -298,43 +290,4 @@ public class AgendaConfigure extends Activity {
 			finish();
 		}
 	};
-
-	/**
-	 * Sets a recurring alarm for the given appwidget id.
-	 * 
-	 * @param ctx
-	 * @param mAppWidgetId
-	 * The id of the app widget for which this alarm is being set
-	 */
-	public static void setAlarm(Context ctx, int mAppWidgetId) {
-		Log.d(Constants.TAG, "Setting alarm - " + mAppWidgetId);
-		Intent widgetUpdate = new Intent();
-		widgetUpdate.setAction(AgendaWidgetProvider.WIDGET_UPDATE);
-		widgetUpdate.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[] { mAppWidgetId });
-		PendingIntent pendingIntent = PendingIntent.getBroadcast(ctx, mAppWidgetId, widgetUpdate, 0);
-		AlarmManager alarmManager = (AlarmManager) ctx.getSystemService(ALARM_SERVICE);
-		// Set it to update every 14 mins
-		alarmManager.setRepeating(AlarmManager.RTC, System.currentTimeMillis() + 3000, 14 * 60 * 1000, pendingIntent);
-
-		AgendaWidgetProvider.addIdToAlarm(ctx, mAppWidgetId);
-	}
-
-	/**
-	 * Removes a recurring alarm for the given appwidget id.
-	 * 
-	 * @param ctx
-	 * @param mAppWidgetId
-	 * The id of the app widget to remove the alarm for
-	 */
-	public static void cancelAlarm(Context ctx, int mAppWidgetId) {
-		Log.d(Constants.TAG, "Cancelling alarm - " + mAppWidgetId);
-		Intent widgetUpdate = new Intent();
-		widgetUpdate.setAction(AgendaWidgetProvider.WIDGET_UPDATE);
-		widgetUpdate.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[] { mAppWidgetId });
-		PendingIntent pendingIntent = PendingIntent.getBroadcast(ctx, mAppWidgetId, widgetUpdate, 0);
-		AlarmManager alarmManager = (AlarmManager) ctx.getSystemService(ALARM_SERVICE);
-		alarmManager.cancel(pendingIntent);
-
-		AgendaWidgetProvider.removeIdFromList(ctx, mAppWidgetId);
-	}
 }
\ No newline at end of file
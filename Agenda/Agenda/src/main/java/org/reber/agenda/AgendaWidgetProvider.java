@@ -17,17 +17,21 @@ package org.reber.agenda;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
+import android.graphics.Color;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.RemoteViews;
-import org.reber.agenda.list.Event;
+import org.reber.agenda.core.DayLabels;
+import org.reber.agenda.core.EventTable;
 import org.reber.agenda.util.CalendarUtilities;
 import org.reber.agenda.util.Constants;
+import org.reber.agenda.util.EventCache;
 
 import java.util.*;
 
@@ -44,8 +48,11 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
 
     public static String NEXT_POS_EXTRA = "NEXT_POS";
     public static String WIDGET_ID_EXTRA = "WIDGET_ID";
-    private static CalendarUtilities util;
-    private static ArrayList<Integer> ids = new ArrayList<Integer>();
+
+    /**
+     * The widgets only show events that haven't started yet
+     */
+    private static final boolean SHOW_CURRENT_EVENT = false;
 
     /* (non-Javadoc)
      * @see android.appwidget.AppWidgetProvider#onReceive(android.content.Context, android.content.Intent)
@@ -53,7 +60,13 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
     @Override
     public void onReceive(Context context, Intent intent) {
         String action = intent.getAction();
-        if (WIDGET_UPDATE.equals(action)) {
+        if (WIDGET_UPDATE.equals(action) && intent.getBooleanExtra(WidgetScheduler.ALARM_EXTRA, false)) {
+            // The shared alarm went off, so refresh every widget that is due in one batch
+            int[] appWidgetIds = WidgetScheduler.onAlarm(context);
+            if (appWidgetIds.length > 0) {
+                this.onUpdate(context, AppWidgetManager.getInstance(context), appWidgetIds);
+            }
+        } else if (WIDGET_UPDATE.equals(action)) {
             Bundle extras = intent.getExtras();
             if (extras != null) {
                 int[] appWidgetIds = extras.getIntArray(AppWidgetManager.EXTRA_APPWIDGET_IDS);
@@ -65,7 +78,15 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
             Bundle extras = intent.getExtras();
             if (extras != null) {
                 int appWidgetId = extras.getInt(WIDGET_ID_EXTRA);
-                updateAppWidget(context, AppWidgetManager.getInstance(context), appWidgetId, intent.getIntExtra(NEXT_POS_EXTRA, 0));
+                WidgetRefresher.refresh(context, new int[] { appWidgetId }, intent.getIntExtra(NEXT_POS_EXTRA, 0), goAsync());
+            }
+        } else if (Intent.ACTION_PROVIDER_CHANGED.equals(action) || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            // The calendars or the clock changed, so every widget might be out of date
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, AgendaWidgetProvider.class));
+            if (appWidgetIds.length > 0) {
+                this.onUpdate(context, appWidgetManager, appWidgetIds);
             }
         } else {
             super.onReceive(context, intent);
@@ -74,36 +95,101 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // Perform this loop procedure for each App Widget that belongs to this provider
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId, 0);
+        // The rendering happens on a background thread, and the broadcast is kept
+        // alive until it is done. Each render sets the widget's next alarm.
+        WidgetRefresher.refresh(context, appWidgetIds, 0, goAsync());
+    }
+
+    /**
+     * Updates all of the given widgets at once. Widgets showing the same calendars
+     * over the same number of days share a single read of the events.
+     *
+     * @param context
+     * @param appWidgetManager
+     * @param util
+     * The util to read and format the events with. It is changed while the widgets
+     * are rendered, so it must belong to the calling thread.
+     * @param widgets
+     * The ids of the widgets to update, and the position of the event each one should show
+     */
+    public static void updateAppWidgets(Context context, AppWidgetManager appWidgetManager, CalendarUtilities util,
+                                        Map<Integer, Integer> widgets) {
+        if (widgets.isEmpty()) {
+            return;
+        }
+
+        // The available calendars are the same for every widget, so only read them once
+        Set<AndroidCalendar> available = util.getAvailableCalendars();
 
-            if (!ids.contains(Integer.valueOf(appWidgetId))) {
-                AgendaConfigure.setAlarm(context, appWidgetId);
+        Map<String, List<WidgetConfig>> groups = new LinkedHashMap<String, List<WidgetConfig>>();
+        for (Map.Entry<Integer, Integer> widget : widgets.entrySet()) {
+            WidgetConfig config = new WidgetConfig(context, util, available, widget.getKey(), widget.getValue());
+            String key = EventCache.getKey(config.calendars) + "/" + config.numDays;
+
+            List<WidgetConfig> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<WidgetConfig>();
+                groups.put(key, group);
             }
+            group.add(config);
+        }
+
+        // When each widget next needs to be updated, scheduled together at the end
+        Map<Integer, Long> nextUpdates = new HashMap<Integer, Long>();
+
+        // Label the days once for all of the widgets
+        int maxDays = 0;
+        for (List<WidgetConfig> group : groups.values()) {
+            maxDays = Math.max(maxDays, group.get(0).numDays);
         }
+        DayLabels labels = CalendarUtilities.getDayLabels(context, maxDays, null);
+
+        for (List<WidgetConfig> group : groups.values()) {
+            // Read enough events for the widget that is furthest along
+            int maxEvents = 0;
+            for (WidgetConfig config : group) {
+                maxEvents = Math.max(maxEvents, config.eventPos + 1);
+            }
+
+            WidgetConfig first = group.get(0);
+            EventTable events = util.getEventTable(first.calendars, first.numDays, SHOW_CURRENT_EVENT, maxEvents);
+            Log.d(Constants.TAG, "Read " + events.size() + " events for " + group.size() + " widget(s)");
+
+            // The widgets in the group show the same events, so they change at the same time
+            long nextUpdate = WidgetScheduler.getNextUpdate(events, System.currentTimeMillis(), TimeZone.getDefault());
+
+            for (WidgetConfig config : group) {
+                // Don't let one broken widget keep the others from updating
+                try {
+                    util.setUse24Hour(config.use24Hour);
+                    renderAppWidget(context, appWidgetManager, util, config, events, labels);
+                } catch (RuntimeException e) {
+                    Log.e(Constants.TAG, "Unable to update widget " + config.appWidgetId, e);
+                }
+                nextUpdates.put(config.appWidgetId, nextUpdate);
+            }
+        }
+
+        WidgetScheduler.schedule(context, nextUpdates);
     }
 
     /**
-     * Updates the widget with the given widgetId.
+     * Renders a single widget from the events that were read for its group.
      *
      * @param context
      * @param appWidgetManager
-     * @param appWidgetId
-     * The id of the widget to update
+     * @param util
+     * @param config
+     * The settings of the widget to render
+     * @param events
+     * The events of the widget's calendars
+     * @param labels
+     * The labels of the days
      */
-    public static void updateAppWidget(final Context context, AppWidgetManager appWidgetManager, final int appWidgetId, int eventPos) {
-        // Get the package name of the app we want to use when the user clicks on the widget
-        SharedPreferences pref = context.getSharedPreferences(Constants.Widget.WIDGET_PREFS + "" + appWidgetId, 0);
-        final String packageName = pref.getString(Constants.Widget.PACKAGE_NAME, "");
-        int textColor = pref.getInt(Constants.Widget.TEXT_COLOR, context.getResources().getColor(R.color.white));
-        int bgColor = pref.getInt(Constants.Widget.BG_COLOR, context.getResources().getColor(R.color.black));
-        int transparency = pref.getInt(Constants.Widget.TRANSPARENCY, 0xFF000000);
-        int widgetVersion = pref.getInt(Constants.Widget.VERSION, 0);
-        int numDays = pref.getInt(Constants.Widget.NUM_DAYS, 2);
-
-        bgColor &= 0x00FFFFFF;
-        bgColor |= (transparency << 24);
+    private static void renderAppWidget(Context context, AppWidgetManager appWidgetManager, CalendarUtilities util,
+                                        WidgetConfig config, EventTable events, DayLabels labels) {
+        final int appWidgetId = config.appWidgetId;
+        final String packageName = config.packageName;
 
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(new Date());
@@ -130,33 +216,9 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
         // Get the layout for the App Widget and attach an on-click listener to the button
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.agenda);
         views.setTextViewText(R.id.day_agenda, calendar.get(Calendar.DATE)+"");
-        views.setTextViewText(R.id.month_agenda, CalendarUtilities.monthFormat.format(calendar.getTime()));
-        views.setInt(R.id.agenda_frame, "setBackgroundColor", bgColor);
-        setTextColor(views, textColor);
-
-        Collection<Event> events = null;
-        if (util == null) {
-            util = new CalendarUtilities(context, pref.getBoolean(Constants.Widget.USE_24_HR, false));
-        }
-
-        try {
-            util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.Widget.WIDGET_PREFS + "" + appWidgetId));
-        } catch (NoSuchElementException e) {
-            try {
-                util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.Widget.WIDGET_PREFS));
-            } catch (NoSuchElementException ex) {
-                try {
-                    util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.AgendaList.APP_PREFS));
-                } catch (NoSuchElementException exc) {
-                    views.setViewVisibility(R.id.event_view, View.INVISIBLE);
-                    views.setViewVisibility(R.id.empty_msg, View.VISIBLE);
-                    views.setTextViewText(R.id.empty_msg, "Please re-add widget to home screen");
-                    appWidgetManager.updateAppWidget(appWidgetId, views);
-                    return;
-                }
-            }
-        }
-        events = util.getCalendarData(numDays, false);
+        views.setTextViewText(R.id.month_agenda, CalendarUtilities.getMonthString(calendar.getTimeInMillis()));
+        views.setInt(R.id.agenda_frame, "setBackgroundColor", config.bgColor);
+        setTextColor(views, config.textColor);
 
         if (pendingIntent != null) {
             views.setOnClickPendingIntent(R.id.agenda_frame, pendingIntent);
@@ -166,53 +228,73 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
             // There aren't any events in the near future, so we display the default message
             views.setViewVisibility(R.id.event_view, View.INVISIBLE);
             views.setViewVisibility(R.id.empty_msg, View.VISIBLE);
-            views.setImageViewBitmap(R.id.calendar_item, CalendarUtilities.getColorCalendarBitmap(context, "blue"));
+            views.setImageViewBitmap(R.id.calendar_item, CalendarUtilities.getColorCalendarBitmap(context, Color.BLUE));
         } else {
             views.setViewVisibility(R.id.empty_msg, View.INVISIBLE);
             views.setViewVisibility(R.id.event_view, View.VISIBLE);
 
-            Iterator<Event> iter = events.iterator();
-            Event first = iter.next();
+            // If there aren't enough events, then we will start over at beginning
+            int first = config.eventPos % events.size();
 
-            for (int i = 0; i < eventPos; i++) {
-                try {
-                    first = iter.next();
-                } catch (NoSuchElementException e) {
-                    // If this event is null, then we will start over at beginning
-                    iter = events.iterator();
-                    first = iter.next();
-                }
-            }
-
-            String tomorrow = CalendarUtilities.getDateString(context, first);
-            String location = first.getLocation();
+            String tomorrow = labels.getLabelForTime(events.getBegin(first));
+            String location = events.getLocation(first);
             // If there is no location, we want to center the stuff on the widget
             if (location == null || location.equals("")) {
                 views.setViewVisibility(R.id.event_view_text, View.INVISIBLE);
                 views.setViewVisibility(R.id.event_view_text_no_loc, View.VISIBLE);
 
                 views.setTextViewText(R.id.when_no_loc,  (!tomorrow.contains(context.getResources().getText(R.string.today)) ? tomorrow + " ": "") +
-                        util.getFormattedTimeString(context, first));
+                        util.getFormattedTimeString(context, events.getBegin(first), events.getEnd(first), events.isAllDay(first)));
 
-                views.setTextViewText(R.id.item_title_no_loc, first.getTitle());
+                views.setTextViewText(R.id.item_title_no_loc, events.getTitle(first));
             } else {
                 views.setViewVisibility(R.id.event_view_text_no_loc, View.INVISIBLE);
                 views.setViewVisibility(R.id.event_view_text, View.VISIBLE);
 
                 views.setTextViewText(R.id.where, location);
                 views.setTextViewText(R.id.when,  (!tomorrow.contains(context.getResources().getText(R.string.today)) ? tomorrow + " ": "") +
-                        util.getFormattedTimeString(context, first));
+                        util.getFormattedTimeString(context, events.getBegin(first), events.getEnd(first), events.isAllDay(first)));
 
-                views.setTextViewText(R.id.item_title, first.getTitle());
+                views.setTextViewText(R.id.item_title, events.getTitle(first));
             }
 
-            views.setImageViewBitmap(R.id.calendar_item, CalendarUtilities.getColorCalendarBitmap(context, first.getColor()));
+            views.setImageViewBitmap(R.id.calendar_item, CalendarUtilities.getColorCalendarBitmap(context, events.getColor(first)));
         }
 
         // Tell the AppWidgetManager to perform an update on the current App Widget
         appWidgetManager.updateAppWidget(appWidgetId, views);
     }
 
+    /**
+     * The settings of a single widget, read from its preferences once per update
+     */
+    private static class WidgetConfig {
+        final int appWidgetId;
+        final int eventPos;
+        final String packageName;
+        final int textColor;
+        final int bgColor;
+        final int numDays;
+        final boolean use24Hour;
+        final Set<AndroidCalendar> calendars;
+
+        WidgetConfig(Context context, CalendarUtilities util, Set<AndroidCalendar> available, int appWidgetId, int eventPos) {
+            this.appWidgetId = appWidgetId;
+            this.eventPos = eventPos;
+
+            String prefName = Constants.Widget.WIDGET_PREFS + "" + appWidgetId;
+            SharedPreferences pref = context.getSharedPreferences(prefName, 0);
+            packageName = pref.getString(Constants.Widget.PACKAGE_NAME, "");
+            textColor = pref.getInt(Constants.Widget.TEXT_COLOR, context.getResources().getColor(R.color.white));
+            int transparency = pref.getInt(Constants.Widget.TRANSPARENCY, 0xFF000000);
+            int bg = pref.getInt(Constants.Widget.BG_COLOR, context.getResources().getColor(R.color.black));
+            bgColor = (bg & 0x00FFFFFF) | (transparency << 24);
+            numDays = pref.getInt(Constants.Widget.NUM_DAYS, 2);
+            use24Hour = pref.getBoolean(Constants.Widget.USE_24_HR, false);
+            calendars = util.getSelectedCalendarFromPref(prefName, available);
+        }
+    }
+
     /**
      * Sets the text color on the widget
      *
@@ -230,26 +312,6 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
         views.setTextColor(R.id.item_title_no_loc, color);
     }
 
-    /**
-     * Adds the id of a widget to the list of widgets that have alarms set
-     * @param ctx
-     * @param id
-     * The id of the widget
-     */
-    public static void addIdToAlarm(Context ctx, int id) {
-        ids.add(id);
-    }
-
-    /**
-     * Removes the id of a widget from the list of widgets that have alarms set
-     * @param ctx
-     * @param id
-     * The id of the widget
-     */
-    public static void removeIdFromList(Context ctx, int id) {
-        ids.remove(Integer.valueOf(id));
-    }
-
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
         super.onDeleted(context, appWidgetIds);
@@ -263,25 +325,11 @@ public class AgendaWidgetProvider extends AppWidgetProvider {
             edit.putInt(Constants.Widget.TRANSPARENCY, 0xFF000000);
             edit.commit();
 
-            if (util != null) {
-                util.setSelectedCalendars(new HashSet<AndroidCalendar>());
-                util.saveSelectedCalendarsPref(Constants.Widget.WIDGET_PREFS + "" + appWidgetId);
-            } else {
-                new CalendarUtilities(context, false).saveSelectedCalendarsPref(Constants.Widget.WIDGET_PREFS + "" + appWidgetId);
-            }
+            // A new util hasn't selected any calendars, so this clears the widget's calendars
+            new CalendarUtilities(context, false).saveSelectedCalendarsPref(Constants.Widget.WIDGET_PREFS + "" + appWidgetId);
 
             // When the widget is disabled, we want to remove the update alarm
-            AgendaConfigure.cancelAlarm(context, appWidgetId);
+            WidgetScheduler.cancel(context, appWidgetId);
         }
     }
-
-    /**
-     * Adds the instance of CalendarUtil to the widget for future use
-     *
-     * @param utl
-     * The instance of CalendarUtilities to use
-     */
-    public static void saveUtil(CalendarUtilities utl) {
-        util = utl;
-    }
 }
@@ -20,10 +20,21 @@ package org.reber.agenda;
  * @author brianreber
  */
 public class AndroidCalendar implements Comparable<AndroidCalendar> {
+	/**
+	 * The color used when a calendar's color can't be parsed (opaque blue)
+	 */
+	public static final int DEFAULT_COLOR = 0xFF0000FF;
+
 	private String id;
 	private String color;
 	private String name;
 
+	/**
+	 * The parsed color. It is parsed whenever the color is set, so the threads
+	 * reading it never write to it.
+	 */
+	private volatile int colorValue;
+
 	/**
 	 * Creates a new Calendar with the given parameters
 	 *
@@ -37,6 +48,7 @@ public class AndroidCalendar implements Comparable<AndroidCalendar> {
 	public AndroidCalendar(String id, String color, String name) {
 		this.id = id;
 		this.color = color;
+		this.colorValue = parseColor(color);
 		this.name = name;
 	}
 
@@ -66,6 +78,41 @@ public class AndroidCalendar implements Comparable<AndroidCalendar> {
 	 */
 	public void setColor(String color) {
 		this.color = color;
+		this.colorValue = parseColor(color);
+	}
+
+	/**
+	 * Gets the color of this calendar as an int. If it isn't a valid color, we
+	 * default to blue.
+	 *
+	 * @return the color, as an ARGB int
+	 */
+	public int getColorValue() {
+		return colorValue;
+	}
+
+	/**
+	 * Parses a color in the form #RRGGBB or #AARRGGBB, which is what the
+	 * calendar colors are stored as.
+	 *
+	 * @param color
+	 * @return
+	 * The color as an int, or DEFAULT_COLOR if it isn't valid
+	 */
+	private static int parseColor(String color) {
+		if (color == null || !color.startsWith("#") || (color.length() != 7 && color.length() != 9)) {
+			return DEFAULT_COLOR;
+		}
+		try {
+			long value = Long.parseLong(color.substring(1), 16);
+			if (color.length() == 7) {
+				// Set the alpha value
+				value |= 0x00000000ff000000L;
+			}
+			return (int) value;
+		} catch (NumberFormatException e) {
+			return DEFAULT_COLOR;
+		}
 	}
 
 	/**
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda;
+
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver.PendingResult;
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import org.reber.agenda.util.CalendarUtilities;
+import org.reber.agenda.util.Constants;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders widgets on a background thread so that the broadcast receiver
+ * doesn't do any database or bitmap work on the main thread.
+ *
+ * If a widget is asked to refresh again before its previous refresh has started,
+ * the two requests are merged into a single render. All of the widgets waiting
+ * when the worker gets to them are rendered together as one batch.
+ *
+ * Each batch is rendered with a CalendarUtilities that the worker creates for
+ * it, so a batch only ever sees the settings that were saved before it started.
+ *
+ * @author brianreber
+ */
+public class WidgetRefresher {
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "AgendaWidgetRefresh");
+        }
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The widgets that are waiting to be rendered, and the event position to render
+     */
+    private static final Map<Integer, Integer> pending = new HashMap<Integer, Integer>();
+
+    /**
+     * Queues a refresh of the given widgets.
+     *
+     * @param context
+     * @param appWidgetIds
+     * The ids of the widgets to refresh
+     * @param eventPos
+     * The position of the event to show
+     * @param result
+     * The result of the broadcast that asked for this refresh, which is finished once
+     * the widgets have been rendered. May be null.
+     */
+    public static void refresh(Context context, int[] appWidgetIds, int eventPos, final PendingResult result) {
+        final Context appContext = context.getApplicationContext();
+        boolean queued = false;
+
+        synchronized (pending) {
+            for (int appWidgetId : appWidgetIds) {
+                // If this widget is already waiting, just update what it will show
+                if (pending.put(appWidgetId, eventPos) == null) {
+                    queued = true;
+                }
+            }
+        }
+
+        if (!queued) {
+            Log.d(Constants.TAG, "Coalesced widget refresh");
+            if (result != null) {
+                result.finish();
+            }
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Render everything that is waiting, not just what this request queued,
+                    // so widgets refreshed close together share a single read of the events
+                    Map<Integer, Integer> widgets;
+                    synchronized (pending) {
+                        widgets = new LinkedHashMap<Integer, Integer>(pending);
+                        pending.clear();
+                    }
+
+                    if (!widgets.isEmpty()) {
+                        AgendaWidgetProvider.updateAppWidgets(appContext, AppWidgetManager.getInstance(appContext),
+                                new CalendarUtilities(appContext, false), widgets);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(Constants.TAG, "Unable to update widgets", e);
+                } finally {
+                    if (result != null) {
+                        result.finish();
+                    }
+                }
+            }
+        });
+    }
+}
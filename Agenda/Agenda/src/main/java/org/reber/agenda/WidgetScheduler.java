@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import org.reber.agenda.core.AgendaDays;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.util.Constants;
+
+import java.util.*;
+
+/**
+ * Schedules the widget updates. Instead of refreshing every few minutes, each
+ * render works out the next time the widget would look different (an event
+ * starting or ending, or the day changing). Changes to the calendars themselves
+ * are picked up from the provider's broadcasts, so they don't need to be polled for.
+ *
+ * There is a single alarm for all of the widgets, set for the earliest time any
+ * of them is due. When it goes off, every widget that is due is refreshed in one
+ * batch. The time each widget is due is kept in preferences and the widgets are
+ * looked up from the AppWidgetManager, so the schedule survives the process
+ * being killed between alarms.
+ *
+ * @author brianreber
+ */
+public class WidgetScheduler {
+
+    /**
+     * Marks the updates that were started by our alarm
+     */
+    public static final String ALARM_EXTRA = "FROM_ALARM";
+
+    /**
+     * The shortest time we wait between updates, so that a lot of events
+     * close together can't keep the widget busy
+     */
+    private static final long MIN_DELAY = 60 * 1000;
+
+    /**
+     * Widgets due this soon after the alarm are refreshed along with it,
+     * rather than setting another alarm just for them
+     */
+    private static final long BATCH_WINDOW = 30 * 1000;
+
+    /**
+     * When a widget is refreshed it schedules its next update. If the refresh
+     * fails, it is tried again after this long.
+     */
+    private static final long RETRY_DELAY = 60 * 60 * 1000;
+
+    /**
+     * The request code of the shared alarm. The old per widget alarms used the
+     * widget id, which is never 0.
+     */
+    private static final int ALARM_REQUEST = 0;
+
+    private static final String SCHEDULE_PREFS = "WidgetSchedule";
+    private static final String DUE_PREFIX = "due_";
+    private static final String MIGRATED = "migrated";
+
+    private static final String STATS_PREFS = "WidgetSchedulerStats";
+    private static final String ALARM_COUNT = "alarms";
+    private static final String REFRESH_COUNT = "refreshes";
+    private static final String SCHEDULE_COUNT = "schedules";
+    private static final String STATS_SINCE = "since";
+
+    /**
+     * Works out when a widget showing the given events next needs to be updated
+     *
+     * @param events
+     * The events the widget was rendered from
+     * @param now
+     * The time the widget was rendered, in milliseconds
+     * @param timeZone
+     * The timezone the days are split in
+     * @return
+     * The time of the next update, in milliseconds
+     */
+    public static long getNextUpdate(EventTable events, long now, TimeZone timeZone) {
+        long next = AgendaDays.getStartOfNextDay(now, timeZone);
+        if (events != null) {
+            next = Math.min(next, events.getNextChange(now));
+        }
+        return Math.max(next, now + MIN_DELAY);
+    }
+
+    /**
+     * Records when each of the given widgets next needs to be updated, and moves
+     * the shared alarm if one of them is due before it.
+     *
+     * @param ctx
+     * @param nextUpdates
+     * The ids of the widgets that were just rendered, and the time of their next update
+     */
+    public static synchronized void schedule(Context ctx, Map<Integer, Long> nextUpdates) {
+        if (nextUpdates.isEmpty()) {
+            return;
+        }
+
+        SharedPreferences.Editor edit = getSchedule(ctx).edit();
+        for (Map.Entry<Integer, Long> next : nextUpdates.entrySet()) {
+            edit.putLong(DUE_PREFIX + next.getKey(), next.getValue());
+        }
+        edit.apply();
+
+        updateAlarm(ctx);
+        count(ctx, SCHEDULE_COUNT, 1);
+    }
+
+    /**
+     * Forgets the given widget, cancelling the shared alarm if it was the last one
+     *
+     * @param ctx
+     * @param appWidgetId
+     * The id of the widget
+     */
+    public static synchronized void cancel(Context ctx, int appWidgetId) {
+        Log.d(Constants.TAG, "Removing widget " + appWidgetId + " from the schedule");
+        getSchedule(ctx).edit().remove(DUE_PREFIX + appWidgetId).apply();
+        updateAlarm(ctx);
+    }
+
+    /**
+     * Called when the shared alarm goes off. Works out which widgets are due, and
+     * sets the alarm for the rest of them.
+     *
+     * @param ctx
+     * @return
+     * The ids of the widgets that should be refreshed now
+     */
+    public static synchronized int[] onAlarm(Context ctx) {
+        long now = System.currentTimeMillis();
+        SharedPreferences schedule = getSchedule(ctx);
+
+        // A widget we don't have a time for has never been rendered, so it is due too
+        List<Integer> due = new ArrayList<Integer>();
+        for (int appWidgetId : getAppWidgetIds(ctx)) {
+            if (schedule.getLong(DUE_PREFIX + appWidgetId, now) <= now + BATCH_WINDOW) {
+                due.add(appWidgetId);
+            }
+        }
+
+        int[] dueIds = new int[due.size()];
+        SharedPreferences.Editor edit = schedule.edit();
+        for (int i = 0; i < dueIds.length; i++) {
+            dueIds[i] = due.get(i);
+            // Rendering the widget replaces this, so it only matters if the render fails
+            edit.putLong(DUE_PREFIX + dueIds[i], now + RETRY_DELAY);
+        }
+        edit.apply();
+
+        int alarms = count(ctx, ALARM_COUNT, 1);
+        count(ctx, REFRESH_COUNT, dueIds.length);
+        Log.d(Constants.TAG, "Widget alarm #" + alarms + " since " + new Date(getStatsSince(ctx)) + ", "
+                + dueIds.length + " widget(s) due");
+
+        updateAlarm(ctx);
+        return dueIds;
+    }
+
+    /**
+     * @return the number of times the shared alarm has gone off since getStatsSince
+     */
+    public static int getAlarmCount(Context ctx) {
+        return getStats(ctx).getInt(ALARM_COUNT, 0);
+    }
+
+    /**
+     * @return the number of widget refreshes the alarm has started since getStatsSince
+     */
+    public static int getRefreshCount(Context ctx) {
+        return getStats(ctx).getInt(REFRESH_COUNT, 0);
+    }
+
+    /**
+     * @return the number of batches of widgets that were scheduled since getStatsSince
+     */
+    public static int getScheduleCount(Context ctx) {
+        return getStats(ctx).getInt(SCHEDULE_COUNT, 0);
+    }
+
+    /**
+     * @return the time the counts were started, in milliseconds
+     */
+    public static long getStatsSince(Context ctx) {
+        return getStats(ctx).getLong(STATS_SINCE, System.currentTimeMillis());
+    }
+
+    /**
+     * Starts the counts over from now
+     */
+    public static synchronized void resetStats(Context ctx) {
+        getStats(ctx).edit().clear().putLong(STATS_SINCE, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Sets the shared alarm for the earliest time one of the widgets is due,
+     * forgetting the widgets that no longer exist.
+     */
+    private static void updateAlarm(Context ctx) {
+        SharedPreferences schedule = getSchedule(ctx);
+        int[] appWidgetIds = getAppWidgetIds(ctx);
+        cancelOldAlarms(ctx, schedule, appWidgetIds);
+
+        Set<String> current = new HashSet<String>();
+        long next = Long.MAX_VALUE;
+        for (int appWidgetId : appWidgetIds) {
+            String key = DUE_PREFIX + appWidgetId;
+            current.add(key);
+            if (schedule.contains(key)) {
+                next = Math.min(next, schedule.getLong(key, Long.MAX_VALUE));
+            }
+        }
+
+        SharedPreferences.Editor edit = schedule.edit();
+        for (String key : schedule.getAll().keySet()) {
+            if (key.startsWith(DUE_PREFIX) && !current.contains(key)) {
+                edit.remove(key);
+            }
+        }
+        edit.apply();
+
+        AlarmManager alarmManager = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pendingIntent = getPendingIntent(ctx, ALARM_REQUEST);
+        if (next == Long.MAX_VALUE) {
+            // Either there are no widgets, or they haven't been rendered yet and will schedule themselves
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        Log.d(Constants.TAG, "Next widget update at " + new Date(next));
+
+        // The widget doesn't need to wake the device, it just needs to be right when it is seen
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            alarmManager.setExact(AlarmManager.RTC, next, pendingIntent);
+        } else {
+            alarmManager.set(AlarmManager.RTC, next, pendingIntent);
+        }
+    }
+
+    /**
+     * Older versions set an alarm for each widget, keyed by its id. Those are
+     * cancelled once, now that the shared alarm takes care of every widget.
+     */
+    private static void cancelOldAlarms(Context ctx, SharedPreferences schedule, int[] appWidgetIds) {
+        if (schedule.getBoolean(MIGRATED, false)) {
+            return;
+        }
+
+        AlarmManager alarmManager = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
+        for (int appWidgetId : appWidgetIds) {
+            alarmManager.cancel(getPendingIntent(ctx, appWidgetId));
+        }
+        schedule.edit().putBoolean(MIGRATED, true).apply();
+    }
+
+    private static int[] getAppWidgetIds(Context ctx) {
+        return AppWidgetManager.getInstance(ctx).getAppWidgetIds(new ComponentName(ctx, AgendaWidgetProvider.class));
+    }
+
+    private static int count(Context ctx, String key, int amount) {
+        SharedPreferences stats = getStats(ctx);
+        int count = stats.getInt(key, 0) + amount;
+        SharedPreferences.Editor edit = stats.edit();
+        edit.putInt(key, count);
+        if (!stats.contains(STATS_SINCE)) {
+            edit.putLong(STATS_SINCE, System.currentTimeMillis());
+        }
+        edit.apply();
+        return count;
+    }
+
+    private static SharedPreferences getSchedule(Context ctx) {
+        return ctx.getSharedPreferences(SCHEDULE_PREFS, 0);
+    }
+
+    private static SharedPreferences getStats(Context ctx) {
+        return ctx.getSharedPreferences(STATS_PREFS, 0);
+    }
+
+    /**
+     * Builds the intent an alarm sends. The requests only differ by their request
+     * code, so the old alarms can be found and cancelled.
+     */
+    private static PendingIntent getPendingIntent(Context ctx, int requestCode) {
+        Intent widgetUpdate = new Intent();
+        widgetUpdate.setAction(AgendaWidgetProvider.WIDGET_UPDATE);
+        widgetUpdate.putExtra(ALARM_EXTRA, true);
+        return PendingIntent.getBroadcast(ctx, requestCode, widgetUpdate, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
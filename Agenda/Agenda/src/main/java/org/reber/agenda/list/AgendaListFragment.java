@@ -15,8 +15,10 @@
 package org.reber.agenda.list;
 
 import android.app.ListFragment;
+import android.app.LoaderManager;
 import android.content.ActivityNotFoundException;
 import android.content.Intent;
+import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
@@ -24,28 +26,34 @@ import android.preference.PreferenceManager;
 import android.provider.CalendarContract;
 import android.util.Log;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ListView;
 import android.widget.Toast;
 import org.reber.agenda.AgendaActivity;
-import org.reber.agenda.AndroidCalendar;
 import org.reber.agenda.R;
 import org.reber.agenda.util.CalendarUtilities;
 import org.reber.agenda.util.Constants;
 
-import java.util.*;
-
 /**
- * A fragment that displays the list of upcoming appointments.
+ * A fragment that displays the list of upcoming appointments. The events are
+ * read by an AgendaLoader, so the UI thread never waits on the calendar provider.
  *
  * @author breber
  */
-public class AgendaListFragment extends ListFragment {
+public class AgendaListFragment extends ListFragment implements LoaderManager.LoaderCallbacks<AgendaLoader.Result> {
+
+    private static final int EVENT_LOADER = 0;
+
+    /**
+     * The next page of days is loaded when the list is scrolled this close to the end
+     */
+    private static final int PREFETCH_ROWS = 10;
 
     private int triggeredWidgetId = -1;
 
     private CalendarUtilities util;
     private SharedPreferences pref;
-    public static int NUM_DAYS_IN_LIST = 7;
+    private CalendarListAdapter adapter;
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -61,79 +69,89 @@ public class AgendaListFragment extends ListFragment {
         pref = PreferenceManager.getDefaultSharedPreferences(getActivity());
         util = new CalendarUtilities(getActivity(), pref.getBoolean(Constants.AgendaList.USE_24_HR, false));
 
-        notifyUtilUpdated();
+        // After a configuration change this hands back the list we already loaded
+        Bundle args = new Bundle();
+        args.putInt(AgendaActivity.WIDGET_EXTRA, triggeredWidgetId);
+        getLoaderManager().initLoader(EVENT_LOADER, args, this);
+
+        getListView().setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_ROWS) {
+                    AgendaLoader loader = getAgendaLoader();
+                    if (loader != null) {
+                        loader.loadMore();
+                    }
+                }
+            }
+        });
     }
 
-    /**
-     * Updates the ListView with the events within the next NUM_DAYS_IN_LIST days
-     */
-    protected void updateList() {
-        try {
-            if (triggeredWidgetId == -1) {
-                //				util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.AgendaList.APP_PREFS));
-                util.setSelectedCalendars(util.getSelectedCalendarFromPref(null));
-            } else {
-                // If we have a valid widget id (this activity was started by clicking on the widget),
-                // set the calendars for this run to the calendars from that widget's preferences
-                util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.Widget.WIDGET_PREFS + triggeredWidgetId));
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Once the list can't be seen, only keep the first page of it
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            AgendaLoader loader = getAgendaLoader();
+            if (loader != null) {
+                loader.trimPages();
             }
-        } catch (NoSuchElementException e) {
-            util.setSelectedCalendars(new HashSet<AndroidCalendar>());
         }
+    }
+
+    private AgendaLoader getAgendaLoader() {
+        Loader<AgendaLoader.Result> loader = getLoaderManager().getLoader(EVENT_LOADER);
+        return (AgendaLoader) loader;
+    }
 
-        Collection<Event> events = util.getCalendarData(NUM_DAYS_IN_LIST, true);
+    @Override
+    public Loader<AgendaLoader.Result> onCreateLoader(int id, Bundle args) {
+        return new AgendaLoader(getActivity(), args.getInt(AgendaActivity.WIDGET_EXTRA, -1));
+    }
 
-        setListAdapter(new CalendarListAdapter(getActivity(), android.R.layout.simple_list_item_1, getListWithDateRows(events), util));
+    /**
+     * Updates the ListView with the events that were loaded
+     */
+    @Override
+    public void onLoadFinished(Loader<AgendaLoader.Result> loader, AgendaLoader.Result result) {
+        if (adapter == null) {
+            adapter = new CalendarListAdapter(getActivity(), util);
+            adapter.setPages(result.getPages());
+            setListAdapter(adapter);
+        } else {
+            // Reuse the adapter so the list keeps its scroll position
+            adapter.setPages(result.getPages());
+        }
 
-        if (util.getSelectedCalendars().isEmpty()) {
+        if (!result.hasCalendars()) {
             setEmptyText(getActivity().getResources().getText(R.string.noCalendarsSelected));
-        } else if (events.isEmpty()) {
+        } else if (!result.hasEvents()) {
             setEmptyText(getActivity().getResources().getText(R.string.emptyMsg));
         }
     }
 
-    /**
-     * Adds Date strings in the list so that they can act as separators in the
-     * ListView.
-     *
-     * @param events
-     * @return A list of ListItems containting event data with separator
-     *         inserted
-     */
-    private List<ListItem> getListWithDateRows(Collection<Event> events) {
-        LinkedList<ListItem> eventList = new LinkedList<ListItem>(events);
-        List<String> dates = new ArrayList<String>();
-
-        ListIterator<ListItem> iter = eventList.listIterator();
-        while (iter.hasNext()) {
-            ListItem e = iter.next();
-            String dateString = CalendarUtilities.getDateString(getActivity(), (Event) e, "E, MMM d");
-            if (!dates.contains(dateString)) {
-                iter.previous();
-                iter.add(new ListSeparator(dateString));
-                dates.add(dateString);
-            }
+    @Override
+    public void onLoaderReset(Loader<AgendaLoader.Result> loader) {
+        if (adapter != null) {
+            adapter.clear();
         }
-
-        return eventList;
     }
 
     @Override
     public void onListItemClick(ListView l, View v, int position, long id) {
         SharedPreferences pref = getActivity().getSharedPreferences(Constants.AgendaList.APP_PREFS, 0);
         if (pref.getBoolean(Constants.AgendaList.ENABLE_CLICK_EVENT, true)) {
-            Object obj = l.getItemAtPosition(position);
-            Event ev = null;
-            if (obj instanceof Event) {
-                ev = (Event) obj;
-            }
-
             Intent intent = new Intent(Intent.ACTION_VIEW);
-            intent.setData(Uri.parse(CalendarContract.Events.CONTENT_URI + "/" + ev.getId()));
+            intent.setData(Uri.parse(CalendarContract.Events.CONTENT_URI + "/" + adapter.getItemId(position)));
             // Who knows why you need to put the start and end times in the intent,
             // but for some reason you need to for the com.android.calendar app...
-            intent.putExtra("beginTime", ev.getStart().getTimeInMillis());
-            intent.putExtra("endTime", ev.getEnd().getTimeInMillis());
+            intent.putExtra("beginTime", adapter.getBegin(position));
+            intent.putExtra("endTime", adapter.getEnd(position));
             try {
                 startActivity(intent);
             } catch (ActivityNotFoundException e) {
@@ -144,23 +162,15 @@ public class AgendaListFragment extends ListFragment {
 
     /**
      * The util variable might have been updated. We will update our state based on the state
-     * of the preferences and then refresh the list
+     * of the preferences and then load the list again in the background
      */
     public void notifyUtilUpdated() {
         util.setUse24Hour(pref.getBoolean(Constants.AgendaList.USE_24_HR, false));
-        try {
-            util.setSelectedCalendars(util.getSelectedCalendarFromPref(null));
-        } catch (NoSuchElementException e) {
-            util.setSelectedCalendars(new HashSet<AndroidCalendar>());
-        }
 
-        try {
-            NUM_DAYS_IN_LIST = Integer.parseInt(pref.getString(Constants.AgendaList.NUM_DAYS, "7"));
-        } catch (NumberFormatException e) {
-            NUM_DAYS_IN_LIST = 7;
+        AgendaLoader loader = getAgendaLoader();
+        if (loader != null) {
+            loader.refresh();
         }
-
-        updateList();
     }
 
 }
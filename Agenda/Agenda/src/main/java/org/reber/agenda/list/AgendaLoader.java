@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.list;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import org.reber.agenda.AndroidCalendar;
+import org.reber.agenda.core.AgendaDays;
+import org.reber.agenda.core.DayLabels;
+import org.reber.agenda.core.EventRows;
+import org.reber.agenda.util.CalendarUtilities;
+import org.reber.agenda.util.Constants;
+import org.reber.agenda.util.EventCache;
+
+import java.util.*;
+
+/**
+ * Loads the rows of the agenda list off of the UI thread. The LoaderManager
+ * keeps the last result across configuration changes, and the list is loaded
+ * again whenever the calendar provider reports a change.
+ * <p/>
+ * The list is read a page of days at a time. The first page is loaded right
+ * away and the list asks for the next one with loadMore as it is scrolled, so
+ * the time to show the first rows doesn't depend on how many days are shown.
+ *
+ * @author brianreber
+ */
+public class AgendaLoader extends AsyncTaskLoader<AgendaLoader.Result> implements EventCache.OnChangeListener {
+
+    /**
+     * The number of days shown if the preference isn't set
+     */
+    public static final int DEFAULT_NUM_DAYS = 7;
+
+    /**
+     * The number of days read at a time
+     */
+    public static final int PAGE_DAYS = 7;
+
+    /**
+     * Pages are read until there are at least this many rows, so that the
+     * first screen is full even if the first days are empty
+     */
+    private static final int MIN_ROWS = 20;
+
+    /**
+     * The format of the dates on the separators
+     */
+    private static final String SEPARATOR_FORMAT = "E, MMM d";
+
+    /**
+     * The rows of the list, along with what to say if there aren't any
+     */
+    public static class Result {
+        private final List<EventRows> pages;
+        private final boolean hasCalendars;
+        private final boolean hasEvents;
+        private final boolean hasMore;
+
+        Result(List<EventRows> pages, boolean hasCalendars, boolean hasEvents, boolean hasMore) {
+            this.pages = pages;
+            this.hasCalendars = hasCalendars;
+            this.hasEvents = hasEvents;
+            this.hasMore = hasMore;
+        }
+
+        /**
+         * @return the rows of each page that was loaded, in order
+         */
+        public List<EventRows> getPages() {
+            return pages;
+        }
+
+        /**
+         * @return whether any calendars were selected
+         */
+        public boolean hasCalendars() {
+            return hasCalendars;
+        }
+
+        /**
+         * @return whether any events were found
+         */
+        public boolean hasEvents() {
+            return hasEvents;
+        }
+
+        /**
+         * @return whether there are days left that haven't been loaded yet
+         */
+        public boolean hasMore() {
+            return hasMore;
+        }
+    }
+
+    private final int widgetId;
+    private final EventCache eventCache;
+    private Result result;
+
+    /**
+     * The rows of each page that has been loaded, guarded by this loader
+     */
+    private List<EventRows> pages = new ArrayList<EventRows>();
+
+    /**
+     * The number of pages the list wants, guarded by this loader
+     */
+    private int requestedPages = 1;
+
+    /**
+     * The Julian day the pages were loaded on, guarded by this loader
+     */
+    private int pagesDay;
+
+    /**
+     * Bumped whenever the pages are thrown away, so that a load that was
+     * already running doesn't put them back. Guarded by this loader.
+     */
+    private int generation;
+
+    /**
+     * Whether a loadMore is in progress. Only used on the UI thread.
+     */
+    private boolean loadingMore;
+
+    /**
+     * @param context
+     * @param widgetId
+     * The id of the widget whose calendars should be shown, or -1 to use the
+     * calendars chosen in the app
+     */
+    public AgendaLoader(Context context, int widgetId) {
+        super(context);
+        this.widgetId = widgetId;
+        this.eventCache = EventCache.getInstance(context);
+
+        // Stay registered while stopped, so that a change is picked up
+        // the next time we are started
+        eventCache.addListener(this);
+    }
+
+    @Override
+    public Result loadInBackground() {
+        long start = SystemClock.elapsedRealtime();
+        Context context = getContext();
+        SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+        CalendarUtilities util = new CalendarUtilities(context, false);
+
+        try {
+            if (widgetId == -1) {
+                util.setSelectedCalendars(util.getSelectedCalendarFromPref(null));
+            } else {
+                // If we have a valid widget id (the activity was started by clicking on the widget),
+                // use the calendars from that widget's preferences
+                util.setSelectedCalendars(util.getSelectedCalendarFromPref(Constants.Widget.WIDGET_PREFS + widgetId));
+            }
+        } catch (NoSuchElementException e) {
+            util.setSelectedCalendars(new HashSet<AndroidCalendar>());
+        }
+
+        int numDays;
+        try {
+            numDays = Integer.parseInt(pref.getString(Constants.AgendaList.NUM_DAYS, "" + DEFAULT_NUM_DAYS));
+        } catch (NumberFormatException e) {
+            numDays = DEFAULT_NUM_DAYS;
+        }
+        int pageCount = Math.max(1, (numDays + PAGE_DAYS - 1) / PAGE_DAYS);
+
+        int today = AgendaDays.getJulianDay(System.currentTimeMillis(), TimeZone.getDefault());
+
+        List<EventRows> loaded;
+        int wanted;
+        int loadGeneration;
+        synchronized (this) {
+            // The pages are split by day, so they can't be kept once the day is over
+            loaded = pagesDay == today ? new ArrayList<EventRows>(pages) : new ArrayList<EventRows>();
+            wanted = Math.min(requestedPages, pageCount);
+            loadGeneration = generation;
+        }
+        while (loaded.size() > wanted) {
+            loaded.remove(loaded.size() - 1);
+        }
+
+        int rows = 0;
+        for (EventRows page : loaded) {
+            rows += page.size();
+        }
+
+        // The labels of the separators are only formatted once for each day
+        DayLabels labels = CalendarUtilities.getDayLabels(context, numDays, SEPARATOR_FORMAT);
+
+        int read = 0;
+        while (loaded.size() < wanted || (rows < MIN_ROWS && loaded.size() < pageCount)) {
+            int fromDay = loaded.size() * PAGE_DAYS;
+            EventRows page = new EventRows(util.getCalendarPage(fromDay, Math.min(PAGE_DAYS, numDays - fromDay), true),
+                    labels, TimeZone.getDefault());
+            loaded.add(page);
+            rows += page.size();
+            read++;
+        }
+
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                pages = loaded;
+                pagesDay = today;
+                requestedPages = loaded.size();
+            }
+        }
+
+        boolean hasEvents = false;
+        for (EventRows page : loaded) {
+            hasEvents |= !page.getEvents().isEmpty();
+        }
+
+        Log.d(Constants.TAG, "Loaded " + read + " list pages in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        return new Result(loaded, !util.getSelectedCalendars().isEmpty(), hasEvents, loaded.size() < pageCount);
+    }
+
+    @Override
+    public void deliverResult(Result data) {
+        if (isReset()) {
+            return;
+        }
+
+        result = data;
+        loadingMore = false;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    /**
+     * Throws away the loaded pages and reads them again, keeping as many days
+     * as the list has already shown. This is needed whenever the events or the
+     * settings they are read with might have changed.
+     */
+    public void refresh() {
+        synchronized (this) {
+            pages = new ArrayList<EventRows>();
+            generation++;
+        }
+        onContentChanged();
+    }
+
+    /**
+     * Loads the next page of days, if there is one and it isn't already being loaded.
+     * The rows already in the list are kept, so only the new days are read.
+     */
+    public void loadMore() {
+        if (loadingMore || result == null || !result.hasMore()) {
+            return;
+        }
+
+        synchronized (this) {
+            // A refresh may be reading the pages we already have again
+            requestedPages = Math.max(requestedPages, pages.size() + 1);
+        }
+        loadingMore = true;
+        forceLoad();
+    }
+
+    /**
+     * Drops all but the first page of rows, to give memory back when the list
+     * isn't being looked at. The dropped pages are read again if the list is
+     * scrolled down to them.
+     */
+    public void trimPages() {
+        EventRows first;
+        synchronized (this) {
+            if (pages.size() <= 1) {
+                return;
+            }
+            pages = new ArrayList<EventRows>(pages.subList(0, 1));
+            requestedPages = 1;
+            generation++;
+            first = pages.get(0);
+        }
+
+        cancelLoad();
+        if (result != null) {
+            deliverResult(new Result(Collections.singletonList(first), result.hasCalendars(),
+                    !first.getEvents().isEmpty(), true));
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (result != null) {
+            deliverResult(result);
+        }
+        if (takeContentChanged() || result == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        eventCache.removeListener(this);
+        result = null;
+        synchronized (this) {
+            pages = new ArrayList<EventRows>();
+            requestedPages = 1;
+            generation++;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.reber.agenda.util.EventCache.OnChangeListener#onEventsChanged()
+     */
+    @Override
+    public void onEventsChanged() {
+        refresh();
+    }
+}
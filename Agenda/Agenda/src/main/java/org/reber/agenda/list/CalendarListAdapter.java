@@ -14,34 +14,232 @@
  */
 package org.reber.agenda.list;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.reber.agenda.R;
+import org.reber.agenda.core.EventRows;
+import org.reber.agenda.core.EventTable;
 import org.reber.agenda.util.CalendarUtilities;
+import org.reber.agenda.util.ColorSwatchCache;
 
 import android.content.Context;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
-import android.widget.ListAdapter;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
 
 /**
  * A specialized ListAdapter that allows us to show data in a ListView,
- * using a specific layout for each row.
+ * using a specific layout for each row. The rows are read by index from
+ * the pages of events that were loaded, so there isn't an object per row.
  *
  * @author brianreber
  */
-public class CalendarListAdapter extends ArrayAdapter<ListItem> implements ListAdapter {
-    private CalendarUtilities util;
+public class CalendarListAdapter extends BaseAdapter {
 
-    public CalendarListAdapter(Context context, int textViewResourceId,	List<ListItem> objects, CalendarUtilities util) {
-        super(context, textViewResourceId, objects);
+    private static final int TYPE_EVENT = 0;
+    private static final int TYPE_SEPARATOR = 1;
 
+    private final Context context;
+    private final CalendarUtilities util;
+    private final LayoutInflater inflater;
+
+    private List<EventRows> pages = new ArrayList<EventRows>();
+
+    /**
+     * The position of the first row of each page
+     */
+    private int[] starts = new int[0];
+    private int count;
+
+    public CalendarListAdapter(Context context, CalendarUtilities util) {
+        this.context = context;
         this.util = util;
+        this.inflater = LayoutInflater.from(context);
+    }
+
+    /**
+     * Shows the given pages of rows, one after the other
+     *
+     * @param pages
+     */
+    public void setPages(List<EventRows> pages) {
+        this.pages = new ArrayList<EventRows>(pages);
+        starts = new int[pages.size()];
+        count = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            starts[i] = count;
+            count += pages.get(i).size();
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Removes all of the rows
+     */
+    public void clear() {
+        setPages(new ArrayList<EventRows>());
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the title of the event, or the label of the separator, at the given position
+     */
+    @Override
+    public Object getItem(int position) {
+        int pageIndex = getPageIndex(position);
+        EventRows page = pages.get(pageIndex);
+        int row = position - starts[pageIndex];
+        if (page.isSeparator(row)) {
+            return page.getLabel(row);
+        }
+        return page.getEvents().getTitle(page.getEventRow(row));
+    }
+
+    /**
+     * @return the id of the event at the given position, or -1 for a separator
+     */
+    @Override
+    public long getItemId(int position) {
+        int pageIndex = getPageIndex(position);
+        EventRows page = pages.get(pageIndex);
+        int row = position - starts[pageIndex];
+        return page.isSeparator(row) ? -1 : page.getEvents().getEventId(page.getEventRow(row));
+    }
+
+    /**
+     * @return the start of the event at the given position, in milliseconds
+     */
+    public long getBegin(int position) {
+        int pageIndex = getPageIndex(position);
+        EventRows page = pages.get(pageIndex);
+        return page.getEvents().getBegin(page.getEventRow(position - starts[pageIndex]));
+    }
+
+    /**
+     * @return the end of the event at the given position, in milliseconds
+     */
+    public long getEnd(int position) {
+        int pageIndex = getPageIndex(position);
+        EventRows page = pages.get(pageIndex);
+        return page.getEvents().getEnd(page.getEventRow(position - starts[pageIndex]));
     }
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        return this.getItem(position).getLayout(getContext(), parent, util);
+        int pageIndex = getPageIndex(position);
+        EventRows page = pages.get(pageIndex);
+        int row = position - starts[pageIndex];
+
+        // The ListView only gives us back views of the same type as this row
+        if (page.isSeparator(row)) {
+            View v = convertView != null ? convertView : newSeparatorView(parent);
+            ((TextView) v.getTag()).setText(page.getLabel(row));
+            return v;
+        }
+
+        View v = convertView != null ? convertView : newEventView(parent);
+        bindEvent((ViewHolder) v.getTag(), page.getEvents(), page.getEventRow(row));
+        return v;
+    }
+
+    private View newSeparatorView(ViewGroup parent) {
+        View v = inflater.inflate(R.layout.separator, parent, false);
+
+        // The label is the only view we need to hold on to
+        v.setTag(v.findViewById(R.id.label));
+
+        return v;
+    }
+
+    private View newEventView(ViewGroup parent) {
+        View v = inflater.inflate(R.layout.rows, parent, false);
+
+        ViewHolder holder = new ViewHolder();
+        holder.label = (TextView) v.findViewById(R.id.label);
+        holder.labelDate = (TextView) v.findViewById(R.id.labelDate);
+        holder.icon = (ImageView) v.findViewById(R.id.icon);
+        holder.labelLocation = (TextView) v.findViewById(R.id.labelLocation);
+        v.setTag(holder);
+
+        return v;
+    }
+
+    private void bindEvent(ViewHolder holder, EventTable events, int row) {
+        String location = events.getLocation(row);
+        int color = events.getColor(row);
+
+        holder.label.setText(events.getTitle(row));
+        holder.labelDate.setText(util.getFormattedTimeString(context, events.getBegin(row), events.getEnd(row),
+                events.isAllDay(row)));
+
+        // The view may have shown an event with a location before, so it needs to be reset
+        if (location == null || location.equals("")) {
+            holder.labelLocation.setVisibility(View.GONE);
+        } else {
+            holder.labelLocation.setVisibility(View.VISIBLE);
+            holder.labelLocation.setText(location);
+        }
+
+        // The swatches are shared, so only change it if the row had another color
+        if (!holder.hasSwatch || holder.color != color) {
+            holder.icon.setImageBitmap(ColorSwatchCache.getSwatch(color));
+            holder.color = color;
+            holder.hasSwatch = true;
+        }
+    }
+
+    /**
+     * The views of an event row, so they don't need to be looked up every time it is bound
+     */
+    private static class ViewHolder {
+        TextView label;
+        TextView labelDate;
+        ImageView icon;
+        TextView labelLocation;
+        int color;
+        boolean hasSwatch;
+    }
+
+    /**
+     * Finds the page the given position is on
+     */
+    private int getPageIndex(int position) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /* (non-Javadoc)
+     * @see android.widget.BaseAdapter#getViewTypeCount()
+     */
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    /* (non-Javadoc)
+     * @see android.widget.BaseAdapter#getItemViewType(int)
+     */
+    @Override
+    public int getItemViewType(int position) {
+        int pageIndex = getPageIndex(position);
+        return pages.get(pageIndex).isSeparator(position - starts[pageIndex]) ? TYPE_SEPARATOR : TYPE_EVENT;
     }
 
     /* (non-Javadoc)
@@ -57,6 +255,6 @@ public class CalendarListAdapter extends ArrayAdapter<ListItem> implements ListA
      */
     @Override
     public boolean isEnabled(int position) {
-        return this.getItem(position).getType() != ListItem.ItemType.SEPARATOR;
+        return getItemViewType(position) != TYPE_SEPARATOR;
     }
-}
\ No newline at end of file
+}
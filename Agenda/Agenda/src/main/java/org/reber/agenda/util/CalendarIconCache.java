@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.util;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+import com.larvalabs.svgandroid.CompiledSVG;
+import com.larvalabs.svgandroid.SVG;
+import com.larvalabs.svgandroid.SVGParser;
+import org.reber.agenda.R;
+
+import java.io.IOException;
+
+/**
+ * A cache of the colored calendar icons. The icon is parsed once and tinted
+ * to each calendar color, and there are only a handful of calendar colors, so
+ * once each of them has been drawn the widget updates don't need to do any SVG
+ * work at all.
+ *
+ * @author brianreber
+ */
+public class CalendarIconCache {
+
+    /**
+     * The color in the icon that gets replaced with the calendar color
+     */
+    private static final int ICON_COLOR = 0xFF0000FF;
+
+    /**
+     * The icon as compiled by the build
+     */
+    private static final String COMPILED_ICON = "svg/calendaricon.svgb";
+
+    /**
+     * The maximum number of bytes of bitmaps we keep around
+     */
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+    private static CalendarIconCache instance;
+
+    private final Resources resources;
+    private final LruCache<Long, Bitmap> bitmaps;
+
+    /**
+     * The icon, which is parsed once and tinted to each calendar color
+     */
+    private SVG icon;
+
+    private int hits;
+    private int misses;
+    private int parses;
+
+    /**
+     * Gets the icon cache for this process, creating it if needed
+     *
+     * @param context
+     * @return
+     * The application wide CalendarIconCache
+     */
+    public static synchronized CalendarIconCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new CalendarIconCache(context.getApplicationContext().getResources());
+        }
+        return instance;
+    }
+
+    private CalendarIconCache(Resources resources) {
+        this.resources = resources;
+        this.bitmaps = new LruCache<Long, Bitmap>(MAX_BYTES) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Gets the calendar icon in the given color
+     *
+     * @param color
+     * The color of the calendar
+     * @param size
+     * The width and height of the bitmap in pixels, or 0 to use the size of the icon itself
+     * @return
+     * The icon in the given color. It is shared, so it must not be modified.
+     */
+    public Bitmap getBitmap(int color, int size) {
+        int density = resources.getDisplayMetrics().densityDpi;
+        Long key = getKey(color, density, size);
+
+        Bitmap bitmap = bitmaps.get(key);
+        synchronized (this) {
+            if (bitmap != null) {
+                hits++;
+                return bitmap;
+            }
+            misses++;
+        }
+
+        bitmap = render(color, size);
+        bitmap.setDensity(density);
+        bitmaps.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * @return the number of times an icon was served from the cache
+     */
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times an icon had to be drawn
+     */
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of times the icon SVG has been loaded
+     */
+    public synchronized int getParseCount() {
+        return parses;
+    }
+
+    /**
+     * Removes all of the icons from the cache
+     */
+    public void evictAll() {
+        bitmaps.evictAll();
+    }
+
+    private static Long getKey(int color, int density, int size) {
+        return ((long) color << 32) | ((long) (density & 0xFFFF) << 16) | (size & 0xFFFF);
+    }
+
+    private synchronized Bitmap render(int color, int size) {
+        SVG svg = getIcon();
+        Picture picture = svg.getPicture();
+
+        int width = size > 0 ? size : picture.getWidth();
+        int height = size > 0 ? size : picture.getHeight();
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.scale((float) width / picture.getWidth(), (float) height / picture.getHeight());
+        svg.drawTinted(canvas, color);
+
+        return bitmap;
+    }
+
+    private synchronized SVG getIcon() {
+        if (icon == null) {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                // The build compiles the icon, so we don't need to parse the XML
+                icon = CompiledSVG.getTintableSVGFromAsset(resources.getAssets(), COMPILED_ICON, ICON_COLOR);
+                Log.d(Constants.TAG, "Loaded compiled calendar icon in " + (SystemClock.elapsedRealtime() - start) + "ms");
+            } catch (IOException e) {
+                Log.w(Constants.TAG, "No compiled calendar icon, parsing the SVG", e);
+                icon = SVGParser.getTintableSVGFromResource(resources, R.raw.calendaricon, ICON_COLOR);
+                Log.d(Constants.TAG, "Parsed calendar icon in " + (SystemClock.elapsedRealtime() - start) + "ms");
+            }
+            parses++;
+        }
+        return icon;
+    }
+}
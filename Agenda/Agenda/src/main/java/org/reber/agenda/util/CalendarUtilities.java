@@ -14,29 +14,29 @@
  */
 package org.reber.agenda.util;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
-import android.content.ContentUris;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteException;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.drawable.PictureDrawable;
 import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.provider.CalendarContract;
-import android.text.format.DateUtils;
 import android.util.Log;
-import com.larvalabs.svgandroid.SVG;
-import com.larvalabs.svgandroid.SVGParser;
 import org.reber.agenda.AndroidCalendar;
 import org.reber.agenda.R;
-import org.reber.agenda.list.Event;
+import org.reber.agenda.core.DateFormats;
+import org.reber.agenda.core.DateLabeler;
+import org.reber.agenda.core.DayLabels;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.EventWindow;
+import org.reber.agenda.core.InstanceSource;
+import org.reber.agenda.core.TimeLabeler;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -49,9 +49,19 @@ public class CalendarUtilities {
     private final Set<org.reber.agenda.AndroidCalendar> calendars;
     private Set<org.reber.agenda.AndroidCalendar> selectedCalendars;
     private final Context context;
+    private final InstanceSource instanceSource;
     private boolean use24Hour;
 
-    public static SimpleDateFormat monthFormat = new SimpleDateFormat("MMM");
+    /**
+     * The labelers hold strings for the current locale, so they are built again
+     * whenever the DateFormats are invalidated
+     */
+    private volatile TimeLabeler timeLabeler;
+    private volatile int timeLabelerGeneration;
+    private static volatile DateLabeler dateLabeler;
+    private static volatile int dateLabelerGeneration;
+
+    private static boolean formatReceiverRegistered;
 
     /**
      * Creates a new CalendarUtilities instance with the given context
@@ -60,9 +70,34 @@ public class CalendarUtilities {
      */
     public CalendarUtilities(Context context, boolean use24Hour) {
         this.context = context;
+        this.instanceSource = new ProviderInstanceSource(context);
         this.use24Hour = use24Hour;
         calendars = new HashSet<org.reber.agenda.AndroidCalendar>();
         selectedCalendars = new HashSet<org.reber.agenda.AndroidCalendar>();
+        registerFormatReceiver(context);
+    }
+
+    /**
+     * Makes sure the cached date formats are thrown away when the locale or
+     * the timezone changes. This only needs to be done once per process.
+     *
+     * @param context
+     */
+    private static synchronized void registerFormatReceiver(Context context) {
+        if (formatReceiverRegistered) {
+            return;
+        }
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.d(Constants.TAG, "Invalidating date formats: " + intent.getAction());
+                DateFormats.invalidate();
+            }
+        }, filter);
+        formatReceiverRegistered = true;
     }
 
     /**
@@ -77,6 +112,9 @@ public class CalendarUtilities {
      * @param use24Hour the use24Hour to set
      */
     public void setUse24Hour(boolean use24Hour) {
+        if (this.use24Hour != use24Hour) {
+            timeLabeler = null;
+        }
         this.use24Hour = use24Hour;
     }
 
@@ -120,6 +158,21 @@ public class CalendarUtilities {
      * If there isn't a preference of the given name
      */
     public Set<org.reber.agenda.AndroidCalendar> getSelectedCalendarFromPref(String prefName) {
+        return getSelectedCalendarFromPref(prefName, getAvailableCalendars());
+    }
+
+    /**
+     * Retrieves the selected calendars from the SharedPreferences with the given key,
+     * picking them out of an already loaded set of available calendars.
+     *
+     * @param prefName
+     * The key the calendars are filed under
+     * @param available
+     * The calendars available on this device
+     * @return
+     * The Calendar instances associated with the calendars saved in preferences
+     */
+    public Set<org.reber.agenda.AndroidCalendar> getSelectedCalendarFromPref(String prefName, Set<AndroidCalendar> available) {
         Set<AndroidCalendar> calsFromPref = new HashSet<AndroidCalendar>();
         SharedPreferences pref;
 
@@ -131,7 +184,7 @@ public class CalendarUtilities {
 
         Set<String> string = pref.getStringSet(Constants.CAL_PREFS, null);
 
-        for (AndroidCalendar c : getAvailableCalendars()) {
+        for (AndroidCalendar c : available) {
             if (string == null || string.contains(c.getId())) {
                 calsFromPref.add(c);
             }
@@ -188,27 +241,35 @@ public class CalendarUtilities {
     }
 
     /**
-     * Gets the event data (the current time through numDays past now)
-     * from the user's enabled calendars.
+     * Gets the events that start in the given range of days from the user's enabled
+     * calendars, so that a long list can be loaded a page at a time.
      *
+     * @param fromDay
+     * The number of days after today that the range starts
      * @param numDays
-     * The number of days after the current time to get the events from
+     * The number of days in the range
      * @return
-     * A Collection of Events that are on the user's calendar
+     * A table of the events that are on the user's calendar, sorted by start time
      */
-    public Collection<Event> getCalendarData(int numDays, boolean showCurrentEvent) {
-        // Using a PriorityQueue for the events because it sorts them as you add them
-        PriorityQueue<Event> events = new PriorityQueue<Event>();
-
-        // For each calendar, get the events after the current time
-        for (AndroidCalendar cal : selectedCalendars) {
-            events.addAll(getEventDataFromCalendar(cal, numDays, showCurrentEvent));
-        }
-
-        ArrayList<Event> sorted = new ArrayList<Event>(events);
-        Collections.sort(sorted);
+    public EventTable getCalendarPage(int fromDay, int numDays, boolean showCurrentEvent) {
+        return getEventData(selectedCalendars, fromDay, numDays, showCurrentEvent, Integer.MAX_VALUE);
+    }
 
-        return sorted;
+    /**
+     * Gets at most maxEvents events (the current time through numDays past now)
+     * from the given calendars, without creating an Event for each of them.
+     *
+     * @param cals
+     * The calendars to get events from
+     * @param numDays
+     * The number of days after the current time to get the events from
+     * @param maxEvents
+     * The maximum number of events to return
+     * @return
+     * An EventTable with the first maxEvents events that are on the given calendars
+     */
+    public EventTable getEventTable(Set<AndroidCalendar> cals, int numDays, boolean showCurrentEvent, int maxEvents) {
+        return getEventData(cals, 0, numDays, showCurrentEvent, maxEvents);
     }
 
     /**
@@ -238,191 +299,109 @@ public class CalendarUtilities {
     }
 
     /**
-     * Actually get the events from the given calendar
+     * Actually get the events from the given calendars. The events are served from
+     * the calendars' EventWindow, which only needs to read the days that weren't
+     * covered the last time it was used.
      *
-     * @param cal
-     * The calendar to get events from
+     * @param cals
+     * The calendars to get events from
+     * @param fromDay
+     * The number of days after today to start getting events from
      * @param numDays
-     * The number of days after the current time to get the events from
+     * The number of days to get the events from
+     * @param maxEvents
+     * The maximum number of events to return
      * @return
-     * A collection of events from the given calendar
+     * A table of events from the given calendars, sorted by start time
      */
-    private PriorityQueue<Event> getEventDataFromCalendar(AndroidCalendar cal, int numDays, boolean showCurrentEvent) {
-        GregorianCalendar todayDate = new GregorianCalendar();
-        todayDate.setTimeInMillis(System.currentTimeMillis());
-        PriorityQueue<Event> events = new PriorityQueue<Event>();
-
-        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
-        GregorianCalendar today = new GregorianCalendar();
-        long now = todayDate.getTimeInMillis();
-        long temp = today.getTimeInMillis() - (today.get(GregorianCalendar.HOUR_OF_DAY) * DateUtils.HOUR_IN_MILLIS);
-        ContentUris.appendId(builder, now - 5 * DateUtils.MINUTE_IN_MILLIS);
-        ContentUris.appendId(builder, temp + numDays * DateUtils.DAY_IN_MILLIS);
-
-        Cursor cursor = null;
-
-        try {
-            cursor = context.getContentResolver().query(builder.build(),
-                    new String[] { CalendarContract.Instances.TITLE, CalendarContract.Instances.BEGIN,
-                            CalendarContract.Instances.END, CalendarContract.Instances.ALL_DAY,
-                            CalendarContract.Instances.EVENT_LOCATION, CalendarContract.Instances.EVENT_ID },
-                    CalendarContract.Events.CALENDAR_ID + "=" + cal.getId(), null,
-                    CalendarContract.Instances.START_DAY + " ASC, " + CalendarContract.Instances.START_MINUTE + " ASC");
-        } catch (SQLiteException e) {
-            Log.d(Constants.TAG, e.getMessage());
-        }
-
-
-        while (cursor != null && cursor.moveToNext()) {
-            GregorianCalendar begin = new GregorianCalendar();
-            begin.setTimeInMillis(cursor.getLong(1));
-            GregorianCalendar end = new GregorianCalendar();
-            end.setTimeInMillis(cursor.getLong(2));
-            boolean allDay = !"0".equals(cursor.getString(3));
-
-            // All day events have times that are off by the Timezone offset, so we
-            // need to fix that to get it to display correctly in the list and on the widget
-            if (allDay) {
-                fixAllDayEvent(begin, end);
-            }
-
-            if ((begin.after(todayDate) && !showCurrentEvent) || (showCurrentEvent && end.after(todayDate))) {
-                events.add(new Event(cursor.getString(0), begin, end, allDay, cal.getColor(),
-                        (cursor.getString(4) == null ? "" : cursor.getString(4)), cursor.getInt(5)));
-            }
+    private EventTable getEventData(Set<AndroidCalendar> cals, int fromDay, int numDays, boolean showCurrentEvent, int maxEvents) {
+        // Map each calendar id to its color so we don't need a query per calendar
+        Map<String, Integer> colors = new HashMap<String, Integer>();
+        for (AndroidCalendar cal : cals) {
+            colors.put(cal.getId(), cal.getColorValue());
         }
-        if (cursor != null) {
-            cursor.close();
-        }
-        return events;
-    }
 
-    /**
-     * Oftentimes all-day events have messed up starting times, which can cause
-     * them to be displayed before events that happen in the previous day.
-     *
-     * The times are usually off by the Timezone offset, so we should be able
-     * to just subtract the offset from the given event time, and it should be
-     * all fixed.
-     *
-     * @param eventStart
-     * @param eventEnd
-     * The date to modify
-     */
-    private static void fixAllDayEvent(GregorianCalendar eventStart, GregorianCalendar eventEnd) {
-        long milliseconds = eventStart.getTimeInMillis();
-        milliseconds -= eventStart.getTimeZone().getRawOffset();
-        eventStart.setTimeInMillis(milliseconds);
-
-        milliseconds = eventEnd.getTimeInMillis();
-        milliseconds -= eventEnd.getTimeZone().getRawOffset();
-        eventEnd.setTimeInMillis(milliseconds - 1000);
+        EventWindow window = EventCache.getInstance(context).getWindow(EventCache.getKey(cals));
+        return window.query(instanceSource, colors, System.currentTimeMillis(), TimeZone.getDefault(),
+                fromDay, numDays, showCurrentEvent, maxEvents);
     }
 
     /**
-     * Gets the resourceId of for the given color.  If we don't have a record of the
-     * given color, we default to blue.
+     * Gets the calendar icon drawn in the given color, from the shared icon cache.
      *
      * @param color
-     * The color to get the resource id of
+     * The color of the calendar
      * @return
-     * The resource id of for the given color, if it exists. Blue otherwise.
+     * The icon in the given color, at the size of the icon itself.
+     * The bitmap is cached and shared, so it must not be modified.
      */
-    public static Bitmap getColorCalendarBitmap(Context ctx, String color) {
-        SVG svg = SVGParser.getSVGFromResource(ctx.getResources(), R.raw.calendaricon, 0xFF0000FF, Color.parseColor(color));
-        PictureDrawable pd = svg.createPictureDrawable();
-
-        Bitmap bitmap = Bitmap.createBitmap(pd.getIntrinsicWidth(), pd.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        pd.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        pd.draw(canvas);
-
-        return bitmap;
+    public static Bitmap getColorCalendarBitmap(Context ctx, int color) {
+        return CalendarIconCache.getInstance(ctx).getBitmap(color, 0);
     }
 
     /**
-     * Gets the time of the start and end of the given event, formatted in this manner:
+     * Gets the time of the start and end of an event, formatted in this manner:
      * "All Day" if the event is an all day event
      * "HH:MM AM/PM - HH:MM AM/PM"
      *
-     * @param d
-     * The event to get the time for
+     * @param start
+     * The start of the event, in milliseconds
+     * @param end
+     * The end of the event, in milliseconds
+     * @param allDay
+     * Whether this is an all day event
      * @return
-     * A string with the given event's start and end time formatted as listed above
+     * A string with the event's start and end time
      */
-    public String getFormattedTimeString(Context ctx, Event d) {
-        GregorianCalendar todayDate = new GregorianCalendar();
-        todayDate.setTimeInMillis(System.currentTimeMillis());
-
-        Date startDate = d.getStart().getTime();
-        Date endDate = d.getEnd().getTime();
-
-        SimpleDateFormat formatter;
-
-        if (d.isAllDay()) {
-            return ctx.getResources().getString(R.string.allDay);
-        } else if (use24Hour){
-            formatter = new SimpleDateFormat("H:mm");
-        } else {
-            formatter = new SimpleDateFormat("h:mm a");
-        }
-
-        String startString = formatter.format(startDate);
-        String endString = formatter.format(endDate);
-
-        if (d.getStart().before(todayDate) && d.getEnd().after(todayDate)) {
-            return ctx.getResources().getString(R.string.now) + " - " + endString;
-        } else {
-            return startString + " - " + endString;
+    public String getFormattedTimeString(Context ctx, long start, long end, boolean allDay) {
+        int generation = DateFormats.getGeneration();
+        TimeLabeler labeler = timeLabeler;
+        if (labeler == null || timeLabelerGeneration != generation) {
+            labeler = new TimeLabeler(ctx.getResources().getString(R.string.allDay),
+                    ctx.getResources().getString(R.string.now), use24Hour);
+            timeLabeler = labeler;
+            timeLabelerGeneration = generation;
         }
+        return labeler.getLabel(start, end, allDay, System.currentTimeMillis(), TimeZone.getDefault());
     }
 
     /**
-     * Formats the given Event's date as: <br />
-     * {Month} {Day}
+     * Builds a table of the labels of the days from today through numDays from now.
+     * Labeling a list of events through the table only formats each day once.
      *
-     * @param e
-     * The Event to format the date of
+     * @param numDays
+     * The number of days after today the table covers
+     * @param formatString
+     * The format of the days that aren't today or tomorrow, or null for the default
      * @return
-     * The Month and Day for the given event
+     * The labels, which should only be used by a single thread
      */
-    private static String getFormattedDateString(Event e, String formatString) {
-        Date date = e.getStart().getTime();
-        SimpleDateFormat formatter = new SimpleDateFormat(formatString);
-        return formatter.format(date);
+    public static DayLabels getDayLabels(Context ctx, int numDays, String formatString) {
+        return new DayLabels(getDateLabeler(ctx), System.currentTimeMillis(), TimeZone.getDefault(), numDays, formatString);
+    }
+
+    private static DateLabeler getDateLabeler(Context ctx) {
+        int generation = DateFormats.getGeneration();
+        DateLabeler labeler = dateLabeler;
+        if (labeler == null || dateLabelerGeneration != generation) {
+            labeler = new DateLabeler(ctx.getResources().getString(R.string.today),
+                    ctx.getResources().getString(R.string.tomorrow));
+            dateLabeler = labeler;
+            dateLabelerGeneration = generation;
+        }
+        return labeler;
     }
 
     /**
-     * Figures out whether the given Event is today or tomorrow.  If neither,
-     * returns the formatted date string.
+     * Gets the abbreviated name of the month the given time is in
      *
-     * @param d
-     * The event to check
+     * @param millis
+     * The time, in milliseconds
      * @return
-     * Today, Tomorrow, or the date
+     * The month, such as "Jan"
      */
-    public static String getDateString(Context ctx, Event d) {
-        return getDateString(ctx, d, null);
-    }
-
-    public static String getDateString(Context ctx, Event d, String formatString) {
-        GregorianCalendar now = new GregorianCalendar();
-        now.setTimeInMillis(System.currentTimeMillis());
-
-        // If event's start date is current date + 1, or the event's start date is 1 (beginning of new year)
-        // and today is the maximum day of year, we return tomorrow.
-        if (d.getStart().get(Calendar.DAY_OF_YEAR) == (now.get(Calendar.DAY_OF_YEAR) + 1) ||
-                (now.get(Calendar.DAY_OF_YEAR) == now.getActualMaximum(Calendar.DAY_OF_YEAR) && d.getStart().get(Calendar.DAY_OF_YEAR) == 1)) {
-            return ctx.getResources().getString(R.string.tomorrow);
-        } else if (d.getStart().get(Calendar.DAY_OF_YEAR) == now.get(Calendar.DAY_OF_YEAR)) {
-            return ctx.getResources().getString(R.string.today);
-        } else {
-            if (formatString == null) {
-                return getFormattedDateString(d, "MMM d");
-            } else {
-                return getFormattedDateString(d, formatString);
-            }
-        }
+    public static String getMonthString(long millis) {
+        return DateFormats.format("MMM", millis, TimeZone.getDefault());
     }
 
 }
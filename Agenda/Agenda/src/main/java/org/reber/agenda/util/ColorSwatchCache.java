@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.util;
+
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+
+import java.util.Arrays;
+
+/**
+ * The solid color swatches shown next to the events in the agenda list. There is
+ * one swatch per calendar color, which is shared by every list row that shows that
+ * color, so the swatches are immutable. The widgets draw the calendar icon from
+ * CalendarIconCache instead.
+ *
+ * @author brianreber
+ */
+public class ColorSwatchCache {
+
+    public static final int WIDTH = 15;
+    public static final int HEIGHT = 80;
+
+    /**
+     * There are only a handful of calendar colors, but don't let this grow forever
+     */
+    private static final int MAX_SWATCHES = 64;
+
+    private static final SparseArray<Bitmap> swatches = new SparseArray<Bitmap>();
+
+    private ColorSwatchCache() {
+    }
+
+    /**
+     * Gets the swatch for the given color
+     *
+     * @param color
+     * The color of the calendar
+     * @return
+     * An immutable bitmap filled with the color
+     */
+    public static synchronized Bitmap getSwatch(int color) {
+        Bitmap swatch = swatches.get(color);
+        if (swatch == null) {
+            if (swatches.size() >= MAX_SWATCHES) {
+                swatches.clear();
+            }
+
+            int[] colors = new int[WIDTH * HEIGHT];
+            Arrays.fill(colors, color);
+            swatch = Bitmap.createBitmap(colors, WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+            swatches.put(color, swatch);
+        }
+        return swatch;
+    }
+}
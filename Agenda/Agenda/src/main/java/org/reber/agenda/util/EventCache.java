@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.util;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CalendarContract;
+import android.util.Log;
+import org.reber.agenda.AndroidCalendar;
+import org.reber.agenda.core.EventWindow;
+
+import java.util.*;
+
+/**
+ * An application wide cache of the events read from the calendar provider.
+ * There is an EventWindow for each set of calendars, which is kept until the
+ * calendar provider reports a change, so repeated widget and list refreshes
+ * don't need to hit the database. Anything showing the events can register
+ * an OnChangeListener to find out when it should load them again.
+ *
+ * @author brianreber
+ */
+public class EventCache {
+
+    /**
+     * Gets told when the calendar data has changed and the cached events
+     * have been thrown away
+     */
+    public interface OnChangeListener {
+        /**
+         * Called on the main thread after the cache has been invalidated
+         */
+        void onEventsChanged();
+    }
+
+    /**
+     * The maximum number of calendar sets we keep windows for
+     */
+    private static final int MAX_ENTRIES = 8;
+
+    private static EventCache instance;
+
+    private final Map<String, EventWindow> entries;
+    private final List<OnChangeListener> listeners = new ArrayList<OnChangeListener>();
+
+    /**
+     * Gets the cache for this process, creating it if needed
+     *
+     * @param context
+     * @return
+     * The application wide EventCache
+     */
+    public static synchronized EventCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new EventCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private EventCache(Context context) {
+        entries = new LinkedHashMap<String, EventWindow>(MAX_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EventWindow> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+        ContentObserver observer = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                Log.d(Constants.TAG, "Calendar data changed, invalidating event cache");
+                invalidate();
+                notifyListeners();
+            }
+        };
+        context.getContentResolver().registerContentObserver(CalendarContract.Instances.CONTENT_URI, true, observer);
+        context.getContentResolver().registerContentObserver(CalendarContract.Events.CONTENT_URI, true, observer);
+    }
+
+    /**
+     * Builds the key for the given set of calendars
+     *
+     * @param cals
+     * The calendars the events are read from
+     * @return
+     * A key that can be used with getWindow
+     */
+    public static String getKey(Set<AndroidCalendar> cals) {
+        List<String> ids = new ArrayList<String>(cals.size());
+        for (AndroidCalendar cal : cals) {
+            ids.add(cal.getId() + "=" + cal.getColor());
+        }
+        Collections.sort(ids);
+
+        // The days the window is split into depend on the timezone
+        return ids + "@" + TimeZone.getDefault().getID();
+    }
+
+    /**
+     * Gets the window stored under the given key, creating an empty one
+     * if there isn't one yet
+     *
+     * @param key
+     * @return
+     * The window for the given key
+     */
+    synchronized EventWindow getWindow(String key) {
+        EventWindow window = entries.get(key);
+        if (window == null) {
+            window = new EventWindow();
+            entries.put(key, window);
+        }
+        return window;
+    }
+
+    /**
+     * Removes all of the cached events
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Registers a listener to be told when the calendar data changes
+     *
+     * @param listener
+     */
+    public synchronized void addListener(OnChangeListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters a listener added with addListener
+     *
+     * @param listener
+     */
+    public synchronized void removeListener(OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        List<OnChangeListener> toNotify;
+        synchronized (this) {
+            toNotify = new ArrayList<OnChangeListener>(listeners);
+        }
+
+        for (OnChangeListener listener : toNotify) {
+            listener.onEventsChanged();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.util;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.util.Log;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.InstanceCursor;
+import org.reber.agenda.core.InstanceReader;
+import org.reber.agenda.core.InstanceSource;
+
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reads the instances of events from the calendar provider
+ *
+ * @author brianreber
+ */
+public class ProviderInstanceSource implements InstanceSource {
+
+    private final Context context;
+
+    public ProviderInstanceSource(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Reads all of the instances of the given calendars in the given days from the
+     * calendar provider. All of the calendars are fetched with a single Instances
+     * query, and the provider does the sorting.
+     */
+    @Override
+    public EventTable queryInstances(Map<String, Integer> calendars, int fromDay, int toDay, boolean startingOnly) {
+        String[] selectionArgs = new String[calendars.size() + (startingOnly ? 1 : 0)];
+        StringBuilder selection = new StringBuilder(CalendarContract.Instances.CALENDAR_ID).append(" IN (");
+        int i = 0;
+        for (String id : calendars.keySet()) {
+            selectionArgs[i] = id;
+            selection.append(i == 0 ? "?" : ",?");
+            i++;
+        }
+        selection.append(")");
+        if (startingOnly) {
+            selection.append(" AND ").append(CalendarContract.Instances.START_DAY).append(" >= ?");
+            selectionArgs[i] = Integer.toString(fromDay);
+        }
+
+        // The end day of the by day uri is inclusive
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_BY_DAY_URI.buildUpon();
+        ContentUris.appendId(builder, fromDay);
+        ContentUris.appendId(builder, toDay - 1);
+
+        Cursor cursor = null;
+
+        try {
+            cursor = context.getContentResolver().query(builder.build(),
+                    new String[] { CalendarContract.Instances.TITLE, CalendarContract.Instances.BEGIN,
+                            CalendarContract.Instances.END, CalendarContract.Instances.ALL_DAY,
+                            CalendarContract.Instances.EVENT_LOCATION, CalendarContract.Instances.EVENT_ID,
+                            CalendarContract.Instances.CALENDAR_ID },
+                    selection.toString(), selectionArgs,
+                    CalendarContract.Instances.START_DAY + " ASC, " + CalendarContract.Instances.START_MINUTE + " ASC");
+        } catch (SQLiteException e) {
+            Log.d(Constants.TAG, e.getMessage());
+        }
+
+        if (cursor == null) {
+            return new EventTable();
+        }
+        try {
+            return InstanceReader.read(new ProviderCursor(cursor), calendars, TimeZone.getDefault());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Reads the columns of the instance query
+     */
+    private static class ProviderCursor implements InstanceCursor {
+        private final Cursor cursor;
+
+        ProviderCursor(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public int getCount() {
+            return cursor.getCount();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            return cursor.moveToNext();
+        }
+
+        @Override
+        public String getTitle() {
+            return cursor.getString(0);
+        }
+
+        @Override
+        public long getBegin() {
+            return cursor.getLong(1);
+        }
+
+        @Override
+        public long getEnd() {
+            return cursor.getLong(2);
+        }
+
+        @Override
+        public boolean isAllDay() {
+            return !"0".equals(cursor.getString(3));
+        }
+
+        @Override
+        public String getLocation() {
+            return cursor.getString(4);
+        }
+
+        @Override
+        public int getEventId() {
+            return cursor.getInt(5);
+        }
+
+        @Override
+        public String getCalendarId() {
+            return cursor.getString(6);
+        }
+    }
+}
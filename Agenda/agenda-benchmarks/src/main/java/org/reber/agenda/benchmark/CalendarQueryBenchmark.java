@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.AgendaDays;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.InstanceSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the events of all of the selected calendars with a single
+ * CALENDAR_ID IN (...) query, against a query per calendar whose results are
+ * merged by start time. The source filters and sorts the instances for every
+ * query like the provider does, but the cost of crossing into the provider
+ * and filling a cursor window is only paid on a device, so the difference
+ * there is larger than the one measured here.
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalendarQueryBenchmark {
+
+    private static final int DAYS = 14;
+
+    @Param({"100", "1000", "5000"})
+    public int instances;
+
+    private InstanceSource source;
+    private Map<String, Integer> calendars;
+    private List<Map<String, Integer>> singleCalendars;
+    private int fromDay;
+    private int toDay;
+
+    @Setup
+    public void setUp() {
+        SyntheticCalendar calendar = new SyntheticCalendar(instances, DAYS);
+        source = calendar.toSource();
+        calendars = calendar.getCalendars();
+
+        singleCalendars = new ArrayList<Map<String, Integer>>();
+        for (Map.Entry<String, Integer> cal : calendars.entrySet()) {
+            singleCalendars.add(Collections.singletonMap(cal.getKey(), cal.getValue()));
+        }
+
+        fromDay = AgendaDays.getJulianDay(SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE);
+        toDay = fromDay + DAYS;
+    }
+
+    /**
+     * All of the calendars in one query, sorted by the source
+     */
+    @Benchmark
+    public EventTable batched() {
+        return source.queryInstances(calendars, fromDay, toDay, false);
+    }
+
+    /**
+     * A query for each calendar, merged into one table by start time
+     */
+    @Benchmark
+    public EventTable perCalendar() {
+        EventTable[] tables = new EventTable[singleCalendars.size()];
+        int total = 0;
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = source.queryInstances(singleCalendars.get(i), fromDay, toDay, false);
+            total += tables[i].size();
+        }
+
+        EventTable merged = new EventTable(total);
+        int[] next = new int[tables.length];
+        while (merged.size() < total) {
+            int earliest = -1;
+            for (int i = 0; i < tables.length; i++) {
+                if (next[i] < tables[i].size()
+                        && (earliest == -1 || tables[i].getBegin(next[i]) < tables[earliest].getBegin(next[earliest]))) {
+                    earliest = i;
+                }
+            }
+            merged.add(tables[earliest], next[earliest]++);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.DateLabeler;
+import org.reber.agenda.core.DateRowBuilder;
+import org.reber.agenda.core.DayLabels;
+import org.reber.agenda.core.EventRows;
+import org.reber.agenda.core.EventTable;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding the date separators to the agenda list. The list
+ * usually shows 90 days with a few thousand events at most.
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateRowsBenchmark {
+
+    /**
+     * The format the list uses for the separators
+     */
+    private static final String SEPARATOR_FORMAT = "E, MMM d";
+
+    @Param({"100", "1000", "3000", "10000"})
+    public int instances;
+
+    @Param({"7", "90"})
+    public int days;
+
+    private EventTable table;
+    private List<Row> events;
+    private DateLabeler labeler;
+
+    @Setup
+    public void setUp() {
+        table = new SyntheticCalendar(instances, days).toTable();
+        events = new ArrayList<Row>(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            events.add(new Row(table.getTitle(i), table.getBegin(i)));
+        }
+        labeler = new DateLabeler("Today", "Tomorrow");
+    }
+
+    @Benchmark
+    public List<Row> build() {
+        // The list builds a table of the day labels for each refresh
+        final DayLabels labels = new DayLabels(labeler, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, days, SEPARATOR_FORMAT);
+        return new DateRowBuilder<Row>(SyntheticCalendar.TIME_ZONE) {
+            @Override
+            protected long getStartMillis(Row event) {
+                return event.start;
+            }
+
+            @Override
+            protected String getDateString(long startMillis) {
+                return labels.getLabelForTime(startMillis);
+            }
+
+            @Override
+            protected Row createSeparator(String dateString) {
+                return new Row(dateString, 0);
+            }
+        }.build(events);
+    }
+
+    /**
+     * The way the list is built now, indexing the rows of the table instead of
+     * making an object for each of them
+     */
+    @Benchmark
+    public EventRows buildRows() {
+        DayLabels labels = new DayLabels(labeler, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, days, SEPARATOR_FORMAT);
+        return new EventRows(table, labels, SyntheticCalendar.TIME_ZONE);
+    }
+
+    /**
+     * The way the list used to be built, labeling every event and looking the label up
+     * in all of the separators so far, for comparison
+     */
+    @Benchmark
+    public List<Row> buildWithContains() {
+        LinkedList<Row> eventList = new LinkedList<Row>(events);
+        List<String> dates = new ArrayList<String>();
+
+        ListIterator<Row> iter = eventList.listIterator();
+        while (iter.hasNext()) {
+            Row e = iter.next();
+            String dateString = labeler.getLabel(e.start, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, SEPARATOR_FORMAT);
+            if (!dates.contains(dateString)) {
+                iter.previous();
+                iter.add(new Row(dateString, 0));
+                dates.add(dateString);
+            }
+        }
+
+        return eventList;
+    }
+
+    /**
+     * A row of the list, standing in for the object per row the list used to make
+     */
+    public static class Row {
+        final String title;
+        final long start;
+
+        Row(String title, long start) {
+            this.title = title;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+/**
+ * The fields of the list's Event once its times and color were primitives,
+ * without the views, so that the events can be kept as one object per row
+ * the way they were before EventTable.
+ *
+ * @author brianreber
+ */
+public class Event implements Comparable<Event> {
+
+    final String title;
+    final long start;
+    final long end;
+    final boolean allDay;
+    final int color;
+    final String location;
+    final int id;
+
+    public Event(String title, long start, long end, boolean allDay, int color, String location, int id) {
+        this.title = title;
+        this.start = start;
+        this.end = end;
+        this.allDay = allDay;
+        this.color = color;
+        this.location = location;
+        this.id = id;
+    }
+
+    /**
+     * Compares the start time of this event to the given event.
+     */
+    @Override
+    public int compareTo(Event another) {
+        return start < another.start ? -1 : (start == another.start ? 0 : 1);
+    }
+}
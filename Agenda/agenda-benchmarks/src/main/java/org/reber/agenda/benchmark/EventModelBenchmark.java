@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.EventTable;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the events of a window, with each event holding its
+ * start and end as a pair of GregorianCalendars and its color as a hex
+ * String, against an event of primitives. Binding a row reads the color
+ * and the start of the event, so that is measured for both as well. The
+ * jmh task runs with -prof gc, so the allocation per window is reported
+ * along with the time:
+ *
+ *   ./gradlew :agenda-benchmarks:jmh -Pbenchmarks=EventModel
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventModelBenchmark {
+
+    @Param({"5000"})
+    public int instances;
+
+    private EventTable table;
+
+    /**
+     * The hex color of each row. Each calendar had its own color String,
+     * so the events of a calendar share one.
+     */
+    private String[] hexColors;
+
+    private List<CalendarEvent> calendarEvents;
+    private List<Event> primitiveEvents;
+
+    @Setup
+    public void setUp() {
+        table = new SyntheticCalendar(instances, 90).toTable();
+
+        Map<Integer, String> colors = new HashMap<Integer, String>();
+        hexColors = new String[table.size()];
+        for (int i = 0; i < table.size(); i++) {
+            String hex = colors.get(table.getColor(i));
+            if (hex == null) {
+                hex = String.format("#%06X", table.getColor(i) & 0xFFFFFF);
+                colors.put(table.getColor(i), hex);
+            }
+            hexColors[i] = hex;
+        }
+
+        calendarEvents = calendarEvents();
+        primitiveEvents = primitiveEvents();
+    }
+
+    /**
+     * The events the way they were kept before, with two GregorianCalendars each
+     */
+    @Benchmark
+    public List<CalendarEvent> calendarEvents() {
+        List<CalendarEvent> events = new ArrayList<CalendarEvent>(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            GregorianCalendar start = new GregorianCalendar();
+            start.setTimeInMillis(table.getBegin(i));
+            GregorianCalendar end = new GregorianCalendar();
+            end.setTimeInMillis(table.getEnd(i));
+
+            events.add(new CalendarEvent(table.getTitle(i), start, end, table.isAllDay(i), hexColors[i],
+                    table.getLocation(i), table.getEventId(i)));
+        }
+        return events;
+    }
+
+    /**
+     * The events with their times, color and ids as primitives
+     */
+    @Benchmark
+    public List<Event> primitiveEvents() {
+        List<Event> events = new ArrayList<Event>(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            events.add(new Event(table.getTitle(i), table.getBegin(i), table.getEnd(i), table.isAllDay(i),
+                    table.getColor(i), table.getLocation(i), table.getEventId(i)));
+        }
+        return events;
+    }
+
+    /**
+     * Reads what a row shows from each event, parsing the color like Color.parseColor did
+     */
+    @Benchmark
+    public long bindCalendarEvents() {
+        long sum = 0;
+        for (CalendarEvent event : calendarEvents) {
+            sum += ((int) Long.parseLong(event.color.substring(1), 16) | 0xFF000000) + event.start.getTimeInMillis();
+        }
+        return sum;
+    }
+
+    /**
+     * Reads what a row shows from each event, with the color already an int
+     */
+    @Benchmark
+    public long bindPrimitiveEvents() {
+        long sum = 0;
+        for (Event event : primitiveEvents) {
+            sum += event.color + event.start;
+        }
+        return sum;
+    }
+
+    /**
+     * The fields of the list's Event before its times and color were primitives
+     */
+    public static class CalendarEvent {
+        final String title;
+        final GregorianCalendar start;
+        final GregorianCalendar end;
+        final boolean allDay;
+        final String color;
+        final String location;
+        final int id;
+
+        CalendarEvent(String title, GregorianCalendar start, GregorianCalendar end, boolean allDay, String color,
+                String location, int id) {
+            this.title = title;
+            this.start = start;
+            this.end = end;
+            this.allDay = allDay;
+            this.color = color;
+            this.location = location;
+            this.id = id;
+        }
+    }
+}
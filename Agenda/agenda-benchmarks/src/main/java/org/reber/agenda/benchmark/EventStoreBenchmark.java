@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.AgendaDays;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.InstanceReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures keeping the agenda window in an EventTable, against an Event
+ * object per row in a PriorityQueue that is copied and sorted, the way the
+ * window was kept before. The jmh task runs with -prof gc, so the allocation
+ * per refresh is reported along with the time:
+ *
+ *   ./gradlew :agenda-benchmarks:jmh -Pbenchmarks=EventStore
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventStoreBenchmark {
+
+    @Param({"5000"})
+    public int instances;
+
+    private SyntheticCalendar calendar;
+    private SyntheticCalendar.Cursor cursor;
+
+    @Setup
+    public void setUp() {
+        calendar = new SyntheticCalendar(instances, 90);
+        cursor = calendar.newCursor();
+    }
+
+    /**
+     * Reads the rows into a columnar table, then drops the events that have ended
+     */
+    @Benchmark
+    public EventTable eventTable() {
+        EventTable events = InstanceReader.read(cursor.rewind(), calendar.getCalendars(), SyntheticCalendar.TIME_ZONE);
+        events.removeEnded(SyntheticCalendar.NOW);
+        return events;
+    }
+
+    /**
+     * Reads the rows into an Event each, queued by start time, then skips the
+     * events that have ended and sorts what is left into a list
+     */
+    @Benchmark
+    public List<Event> priorityQueue() {
+        PriorityQueue<Event> queue = new PriorityQueue<Event>();
+        SyntheticCalendar.Cursor rows = cursor.rewind();
+        while (rows.moveToNext()) {
+            long begin = rows.getBegin();
+            long end = rows.getEnd();
+            boolean allDay = rows.isAllDay();
+            if (allDay) {
+                begin = AgendaDays.fixAllDayStart(begin, SyntheticCalendar.TIME_ZONE);
+                end = AgendaDays.fixAllDayEnd(end, SyntheticCalendar.TIME_ZONE);
+            }
+
+            if (end > SyntheticCalendar.NOW) {
+                String location = rows.getLocation();
+                queue.add(new Event(rows.getTitle(), begin, end, allDay, calendar.getCalendars().get(rows.getCalendarId()),
+                        location == null ? "" : location, rows.getEventId()));
+            }
+        }
+
+        List<Event> sorted = new ArrayList<Event>(queue);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
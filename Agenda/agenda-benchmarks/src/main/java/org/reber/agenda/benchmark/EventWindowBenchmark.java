@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.EventWindow;
+import org.reber.agenda.core.InstanceSource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting the events for the list and the widget from an EventWindow,
+ * with the instances the provider would return already read.
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventWindowBenchmark {
+
+    private static final int DAYS = 90;
+
+    /**
+     * The number of events a widget shows
+     */
+    private static final int WIDGET_EVENTS = 5;
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int instances;
+
+    private Map<String, Integer> calendars;
+    private InstanceSource source;
+    private EventWindow warmWindow;
+
+    @Setup
+    public void setUp() {
+        SyntheticCalendar calendar = new SyntheticCalendar(instances, DAYS);
+        calendars = calendar.getCalendars();
+        final EventTable table = calendar.toTable();
+        source = new InstanceSource() {
+            @Override
+            public EventTable queryInstances(Map<String, Integer> calendars, int fromDay, int toDay, boolean startingOnly) {
+                return table;
+            }
+        };
+
+        warmWindow = new EventWindow();
+        warmWindow.query(source, calendars, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, DAYS, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The first refresh of the list, which reads all of the days
+     */
+    @Benchmark
+    public EventTable coldList() {
+        return new EventWindow().query(source, calendars, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE,
+                DAYS, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Refreshing the list again, when all of the days have been read
+     */
+    @Benchmark
+    public EventTable warmList() {
+        return warmWindow.query(source, calendars, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE,
+                DAYS, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Refreshing a widget, when all of the days have been read
+     */
+    @Benchmark
+    public EventTable warmWidget() {
+        return warmWindow.query(source, calendars, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE,
+                DAYS, false, WIDGET_EVENTS);
+    }
+}
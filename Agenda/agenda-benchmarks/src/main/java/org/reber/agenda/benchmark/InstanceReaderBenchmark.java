@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.InstanceReader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the rows of an instance query into an EventTable,
+ * which is what happens to the calendar provider's cursor.
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstanceReaderBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int instances;
+
+    private SyntheticCalendar calendar;
+    private SyntheticCalendar.Cursor cursor;
+
+    @Setup
+    public void setUp() {
+        calendar = new SyntheticCalendar(instances, 90);
+        cursor = calendar.newCursor();
+    }
+
+    @Benchmark
+    public EventTable read() {
+        return InstanceReader.read(cursor.rewind(), calendar.getCalendars(), SyntheticCalendar.TIME_ZONE);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reber.agenda.core.DateLabeler;
+import org.reber.agenda.core.DayLabels;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.TimeLabeler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures labeling a single event with its date and time, as the
+ * list rows and the widget do
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LabelBenchmark {
+
+    private EventTable events;
+    private int row;
+
+    private DateLabeler dateLabeler;
+    private DayLabels dayLabels;
+    private TimeLabeler timeLabeler;
+    private TimeLabeler timeLabeler24;
+
+    @Setup
+    public void setUp() {
+        events = new SyntheticCalendar(1000, 14).toTable();
+        dateLabeler = new DateLabeler("Today", "Tomorrow");
+        dayLabels = new DayLabels(dateLabeler, SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, 14, null);
+        timeLabeler = new TimeLabeler("All Day", "Now", false);
+        timeLabeler24 = new TimeLabeler("All Day", "Now", true);
+    }
+
+    private int nextRow() {
+        row = (row + 1) % events.size();
+        return row;
+    }
+
+    @Benchmark
+    public String dateString() {
+        int i = nextRow();
+        return dateLabeler.getLabel(events.getBegin(i), SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE, null);
+    }
+
+    @Benchmark
+    public String dayTableString() {
+        int i = nextRow();
+        return dayLabels.getLabelForTime(events.getBegin(i));
+    }
+
+    @Benchmark
+    public String timeString() {
+        int i = nextRow();
+        return timeLabeler.getLabel(events.getBegin(i), events.getEnd(i), events.isAllDay(i),
+                SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE);
+    }
+
+    @Benchmark
+    public String timeString24Hour() {
+        int i = nextRow();
+        return timeLabeler24.getLabel(events.getBegin(i), events.getEnd(i), events.isAllDay(i),
+                SyntheticCalendar.NOW, SyntheticCalendar.TIME_ZONE);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import com.larvalabs.svgandroid.ParserHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures reading the numbers out of the path data of an SVG. Drawing the SVG
+ * needs android.graphics, so only the parsing can be measured here; the
+ * rasterisation has to be measured on a device.
+ * <p/>
+ * The bundled calendar icon is measured along with the corpus of larger SVGs
+ * in the app's androidTest resources, which have one to five hundred paths and
+ * polygons each. Other SVGs can be measured by passing their paths, eg.
+ * -p svg=/path/to/drawing.svg, and the gc profiler shows how much is allocated
+ * per parse.
+ *
+ * @author brianreber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SvgNumberBenchmark {
+
+    private static final Pattern PATH_DATA = Pattern.compile("\\s(?:d|points)\\s*=\\s*\"([^\"]*)\"");
+    private static final Pattern COMMANDS = Pattern.compile("[MmZzLlHhVvCcSsQqTtAa]");
+
+    @Param({"calendaricon.svg", "svg/regions.svg", "svg/chart.svg", "svg/icons.svg"})
+    public String svg;
+
+    private String[] paths;
+    private String[] numberLists;
+    private final ParserHelper ph = new ParserHelper();
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> pathList = new ArrayList<String>();
+        List<String> numberListList = new ArrayList<String>();
+        Matcher matcher = PATH_DATA.matcher(read(svg));
+        while (matcher.find()) {
+            String data = matcher.group(1);
+            pathList.add(data);
+            // The numbers between the commands, which is what a polygon's points look like
+            for (String numbers : COMMANDS.split(data)) {
+                if (numbers.trim().length() > 0) {
+                    numberListList.add(numbers);
+                }
+            }
+        }
+        paths = pathList.toArray(new String[pathList.size()]);
+        numberLists = numberListList.toArray(new String[numberListList.size()]);
+    }
+
+    /**
+     * Reads every number in every path, skipping over the commands
+     */
+    @Benchmark
+    public float pathData() {
+        float sum = 0;
+        for (String path : paths) {
+            int n = path.length();
+            ph.reset(path, 0);
+            while (ph.pos < n) {
+                int count = ph.parseNumbers();
+                for (int i = 0; i < count; i++) {
+                    sum += ph.getNumber(i);
+                }
+                if (ph.pos < n) {
+                    // Step over the command
+                    ph.advance();
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Reads the number lists into the reusable buffer of the helper
+     */
+    @Benchmark
+    public float numberLists() {
+        float sum = 0;
+        for (String numbers : numberLists) {
+            int count = ph.reset(numbers, 0).parseNumbers();
+            for (int i = 0; i < count; i++) {
+                sum += ph.getNumber(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Reads the number lists the way SVGParser.parseNumbers used to, with a substring
+     * and a boxed Float for each number, for comparison
+     */
+    @Benchmark
+    public float numberListsBoxed() {
+        float sum = 0;
+        for (String numbers : numberLists) {
+            for (Float f : parseBoxed(numbers)) {
+                sum += f;
+            }
+        }
+        return sum;
+    }
+
+    private static List<Float> parseBoxed(String s) {
+        int n = s.length();
+        int p = 0;
+        List<Float> numbers = new ArrayList<Float>();
+        boolean skipChar = false;
+        for (int i = 1; i < n; i++) {
+            if (skipChar) {
+                skipChar = false;
+                continue;
+            }
+            char c = s.charAt(i);
+            if (c == ' ' || c == ',' || c == '\n' || c == '\t' || c == '-') {
+                String str = s.substring(p, i);
+                if (str.trim().length() > 0) {
+                    numbers.add(Float.parseFloat(str));
+                    if (c == '-') {
+                        p = i;
+                    } else {
+                        p = i + 1;
+                        skipChar = true;
+                    }
+                } else {
+                    p++;
+                }
+            }
+        }
+        String last = s.substring(p);
+        if (last.trim().length() > 0) {
+            numbers.add(Float.parseFloat(last));
+        }
+        return numbers;
+    }
+
+    private static String read(String svg) throws IOException {
+        InputStream in = SvgNumberBenchmark.class.getResourceAsStream("/" + svg);
+        if (in == null) {
+            in = new FileInputStream(new File(svg));
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
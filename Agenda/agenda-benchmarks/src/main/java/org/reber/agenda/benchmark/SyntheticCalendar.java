@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.benchmark;
+
+import org.reber.agenda.core.AgendaDays;
+import org.reber.agenda.core.EventTable;
+import org.reber.agenda.core.InMemoryInstanceSource;
+import org.reber.agenda.core.InstanceCursor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * A made up calendar with the given number of instances spread over a range
+ * of days, laid out like the rows of an Instances query. The same seed always
+ * gives the same calendar, so runs on different commits can be compared.
+ *
+ * @author brianreber
+ */
+public class SyntheticCalendar {
+
+    public static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Chicago");
+
+    /**
+     * Noon on a Wednesday, so the first day has events before and after it
+     */
+    public static final long NOW = 1400695200000L;
+
+    private static final int CALENDARS = 5;
+    private static final int DISTINCT_TITLES = 200;
+    private static final int DISTINCT_LOCATIONS = 40;
+
+    final String[] titles;
+    final long[] begins;
+    final long[] ends;
+    final boolean[] allDay;
+    final String[] locations;
+    final int[] eventIds;
+    final String[] calendarIds;
+    final Map<String, Integer> calendars = new HashMap<String, Integer>();
+
+    /**
+     * Creates a calendar of instances sorted by start time
+     *
+     * @param instances
+     * The number of instances
+     * @param days
+     * The number of days, starting today, they are spread over
+     */
+    public SyntheticCalendar(int instances, int days) {
+        Random random = new Random(42);
+        for (int i = 0; i < CALENDARS; i++) {
+            calendars.put(Integer.toString(i + 1), 0xFF000000 | random.nextInt(0xFFFFFF));
+        }
+
+        long today = AgendaDays.getStartOfDay(NOW, TIME_ZONE);
+        final long[] sortKeys = new long[instances];
+        long[] unsortedBegins = new long[instances];
+        long[] unsortedEnds = new long[instances];
+        boolean[] unsortedAllDay = new boolean[instances];
+        Integer[] order = new Integer[instances];
+        for (int i = 0; i < instances; i++) {
+            // Events start on a quarter hour somewhere in the days
+            long start = today + (random.nextInt(days * 24 * 4)) * 15 * 60 * 1000L;
+
+            // About one in ten events is all day, which the provider stores as midnight UTC
+            unsortedAllDay[i] = random.nextInt(10) == 0;
+            if (unsortedAllDay[i]) {
+                long day = AgendaDays.getJulianDay(start, TIME_ZONE) - AgendaDays.EPOCH_JULIAN_DAY;
+                unsortedBegins[i] = day * AgendaDays.DAY_IN_MILLIS;
+                unsortedEnds[i] = unsortedBegins[i] + AgendaDays.DAY_IN_MILLIS;
+                sortKeys[i] = AgendaDays.fixAllDayStart(unsortedBegins[i], TIME_ZONE);
+            } else {
+                unsortedBegins[i] = start;
+                unsortedEnds[i] = start + (1 + random.nextInt(8)) * 15 * 60 * 1000L;
+                sortKeys[i] = start;
+            }
+            order[i] = i;
+        }
+
+        // Sorted the way they are once the all day times have been fixed
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long l = sortKeys[lhs];
+                long r = sortKeys[rhs];
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+
+        titles = new String[instances];
+        begins = new long[instances];
+        ends = new long[instances];
+        allDay = new boolean[instances];
+        locations = new String[instances];
+        eventIds = new int[instances];
+        calendarIds = new String[instances];
+        for (int i = 0; i < instances; i++) {
+            int from = order[i];
+            begins[i] = unsortedBegins[from];
+            ends[i] = unsortedEnds[from];
+            allDay[i] = unsortedAllDay[from];
+            titles[i] = "Event " + random.nextInt(DISTINCT_TITLES);
+            locations[i] = random.nextInt(3) == 0 ? null : "Room " + random.nextInt(DISTINCT_LOCATIONS);
+            eventIds[i] = i;
+            calendarIds[i] = Integer.toString(1 + random.nextInt(CALENDARS));
+        }
+    }
+
+    /**
+     * @return the ids of the calendars, mapped to their colors
+     */
+    public Map<String, Integer> getCalendars() {
+        return calendars;
+    }
+
+    /**
+     * @return a cursor over all of the instances
+     */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Builds the table the calendar provider and InstanceReader would give for all of the instances
+     */
+    public EventTable toTable() {
+        EventTable table = new EventTable(begins.length);
+        for (int i = 0; i < begins.length; i++) {
+            long begin = allDay[i] ? AgendaDays.fixAllDayStart(begins[i], TIME_ZONE) : begins[i];
+            long end = allDay[i] ? AgendaDays.fixAllDayEnd(ends[i], TIME_ZONE) : ends[i];
+            table.add(titles[i], begin, end, allDay[i], calendars.get(calendarIds[i]),
+                    locations[i] == null ? "" : locations[i], eventIds[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Builds an InstanceSource holding all of the instances, which filters and sorts
+     * them for each query the way the calendar provider does
+     */
+    public InMemoryInstanceSource toSource() {
+        InMemoryInstanceSource source = new InMemoryInstanceSource(TIME_ZONE);
+        for (int i = 0; i < begins.length; i++) {
+            source.add(calendarIds[i], titles[i], begins[i], ends[i], allDay[i], locations[i], eventIds[i]);
+        }
+        return source;
+    }
+
+    /**
+     * A cursor over the instances, which can be rewound so it can be read again
+     */
+    public class Cursor implements InstanceCursor {
+        private int position = -1;
+
+        public Cursor rewind() {
+            position = -1;
+            return this;
+        }
+
+        @Override
+        public int getCount() {
+            return begins.length;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (position + 1 >= begins.length) {
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        @Override
+        public String getTitle() {
+            return titles[position];
+        }
+
+        @Override
+        public long getBegin() {
+            return begins[position];
+        }
+
+        @Override
+        public long getEnd() {
+            return ends[position];
+        }
+
+        @Override
+        public boolean isAllDay() {
+            return allDay[position];
+        }
+
+        @Override
+        public String getLocation() {
+            return locations[position];
+        }
+
+        @Override
+        public int getEventId() {
+            return eventIds[position];
+        }
+
+        @Override
+        public String getCalendarId() {
+            return calendarIds[position];
+        }
+    }
+}
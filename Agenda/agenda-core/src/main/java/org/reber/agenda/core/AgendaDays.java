@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Date math used when reading and showing the agenda. The calendar provider
+ * splits time into Julian days, so most of this works with those.
+ *
+ * @author brianreber
+ */
+public class AgendaDays {
+
+    public static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * The Julian day of the Unix epoch
+     */
+    public static final int EPOCH_JULIAN_DAY = 2440588;
+
+    private AgendaDays() {
+    }
+
+    /**
+     * Gets the Julian day the given time falls on, the same way
+     * android.text.format.Time.getJulianDay does.
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @param gmtOffset
+     * The offset from GMT at that time, in seconds
+     * @return
+     * The Julian day of the given time
+     */
+    public static int getJulianDay(long millis, long gmtOffset) {
+        long offsetMillis = gmtOffset * 1000;
+        long julianDay = (millis + offsetMillis) / DAY_IN_MILLIS;
+        return (int) julianDay + EPOCH_JULIAN_DAY;
+    }
+
+    /**
+     * Gets the Julian day the given time falls on in the given timezone
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @param timeZone
+     * @return
+     * The Julian day of the given time
+     */
+    public static int getJulianDay(long millis, TimeZone timeZone) {
+        return getJulianDay(millis, timeZone.getOffset(millis) / 1000);
+    }
+
+    /**
+     * Gets the start of the day the given time falls on
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @param timeZone
+     * @return
+     * Midnight at the start of that day, in milliseconds
+     */
+    public static long getStartOfDay(long millis, TimeZone timeZone) {
+        GregorianCalendar day = new GregorianCalendar(timeZone);
+        day.setTimeInMillis(millis);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        return day.getTimeInMillis();
+    }
+
+    /**
+     * Gets the start of the given Julian day
+     *
+     * @param julianDay
+     * @param timeZone
+     * @return
+     * Midnight at the start of that day, in milliseconds
+     */
+    public static long getStartOfJulianDay(int julianDay, TimeZone timeZone) {
+        // Start from noon, so that a daylight savings change can't move us into the day next to it
+        long noon = (julianDay - EPOCH_JULIAN_DAY) * DAY_IN_MILLIS + DAY_IN_MILLIS / 2;
+        return getStartOfDay(noon - timeZone.getOffset(noon), timeZone);
+    }
+
+    /**
+     * Gets the start of the day after the one the given time falls on
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @param timeZone
+     * @return
+     * Midnight at the start of the next day, in milliseconds
+     */
+    public static long getStartOfNextDay(long millis, TimeZone timeZone) {
+        // Days are 23 to 25 hours long, so a day and a half after the start of
+        // today is always partway through tomorrow
+        return getStartOfDay(getStartOfDay(millis, timeZone) + DAY_IN_MILLIS + DAY_IN_MILLIS / 2, timeZone);
+    }
+
+    /**
+     * Gets the number of days from the day of now to the day of the given time,
+     * so 0 is today and 1 is tomorrow.
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * @return
+     * The number of days between the two times' days
+     */
+    public static int getDaysFrom(long millis, long now, TimeZone timeZone) {
+        return getJulianDay(millis, timeZone) - getJulianDay(now, timeZone);
+    }
+
+    /**
+     * Oftentimes all-day events have messed up starting times, which can cause
+     * them to be displayed before events that happen in the previous day.
+     *
+     * The times are midnight UTC, so they are off by the Timezone offset. The
+     * offset is the one on the day of the event, so that the event still starts
+     * at midnight when daylight savings time is on.
+     *
+     * @param eventStart
+     * The start of the event, in milliseconds
+     * @param timeZone
+     * The current timezone
+     * @return
+     * The fixed start of the event
+     */
+    public static long fixAllDayStart(long eventStart, TimeZone timeZone) {
+        return toLocalMidnight(eventStart, timeZone);
+    }
+
+    /**
+     * The end of an all-day event is off by the Timezone offset just like the start.
+     * It is also moved back a second so that it ends on the day it is shown on.
+     *
+     * @param eventEnd
+     * The end of the event, in milliseconds
+     * @param timeZone
+     * The current timezone
+     * @return
+     * The fixed end of the event
+     */
+    public static long fixAllDayEnd(long eventEnd, TimeZone timeZone) {
+        return toLocalMidnight(eventEnd, timeZone) - 1000;
+    }
+
+    /**
+     * Moves midnight UTC to midnight of the same date in the given timezone. The
+     * offset is looked up at the local midnight, since it can be different at
+     * midnight UTC when daylight savings time starts or ends in between.
+     */
+    private static long toLocalMidnight(long utcMidnight, TimeZone timeZone) {
+        long guess = utcMidnight - timeZone.getOffset(utcMidnight);
+        long local = utcMidnight - timeZone.getOffset(guess);
+
+        // Where the clocks skip midnight, the day starts at the first time after it
+        if (local + timeZone.getOffset(local) < utcMidnight) {
+            return guess;
+        }
+        return local;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A cache of the date formats used to label events. SimpleDateFormat isn't
+ * thread safe, so each thread keeps its own formats, by locale and pattern.
+ * Creating a SimpleDateFormat means parsing the pattern and loading the locale
+ * data, so reusing them makes labeling a list of events much cheaper.
+ *
+ * Call invalidate when the locale or timezone of the device changes, and each
+ * thread throws away its formats the next time it uses one.
+ *
+ * @author brianreber
+ */
+public final class DateFormats {
+
+    /**
+     * Bumped by invalidate, so that every thread knows to start over
+     */
+    private static volatile int generation;
+
+    private static final ThreadLocal<Formats> formats = new ThreadLocal<Formats>() {
+        @Override
+        protected Formats initialValue() {
+            return new Formats();
+        }
+    };
+
+    /**
+     * The formats belonging to a single thread
+     */
+    private static class Formats {
+        private final Map<Locale, Map<String, SimpleDateFormat>> byLocale = new HashMap<Locale, Map<String, SimpleDateFormat>>();
+        private final Date date = new Date();
+        private int generation = DateFormats.generation;
+    }
+
+    private DateFormats() {
+    }
+
+    /**
+     * Formats the given time with the given pattern, in the default locale
+     *
+     * @param pattern
+     * The SimpleDateFormat pattern
+     * @param millis
+     * The time to format, in milliseconds
+     * @param timeZone
+     * The timezone to show the time in
+     * @return
+     * The formatted time
+     */
+    public static String format(String pattern, long millis, TimeZone timeZone) {
+        return format(pattern, Locale.getDefault(), millis, timeZone);
+    }
+
+    /**
+     * Formats the given time with the given pattern and locale
+     *
+     * @param pattern
+     * The SimpleDateFormat pattern
+     * @param locale
+     * The locale to format the time for
+     * @param millis
+     * The time to format, in milliseconds
+     * @param timeZone
+     * The timezone to show the time in
+     * @return
+     * The formatted time
+     */
+    public static String format(String pattern, Locale locale, long millis, TimeZone timeZone) {
+        Formats local = getFormats();
+        local.date.setTime(millis);
+        return getFormat(local, pattern, locale, timeZone).format(local.date);
+    }
+
+    /**
+     * Gets this thread's format for the given pattern and locale. The format
+     * must not be handed to another thread.
+     *
+     * @param pattern
+     * The SimpleDateFormat pattern
+     * @param locale
+     * The locale to format times for
+     * @param timeZone
+     * The timezone to show times in
+     * @return
+     * The format, set to the given timezone
+     */
+    public static SimpleDateFormat get(String pattern, Locale locale, TimeZone timeZone) {
+        return getFormat(getFormats(), pattern, locale, timeZone);
+    }
+
+    /**
+     * Throws away the formats of every thread. This is needed when the locale
+     * or timezone of the device changes.
+     */
+    public static synchronized void invalidate() {
+        generation++;
+    }
+
+    /**
+     * @return a number that changes every time the formats are invalidated, so
+     * that anything built from the current locale knows to build itself again
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    private static Formats getFormats() {
+        Formats local = formats.get();
+        int current = generation;
+        if (local.generation != current) {
+            local.byLocale.clear();
+            local.generation = current;
+        }
+        return local;
+    }
+
+    private static SimpleDateFormat getFormat(Formats local, String pattern, Locale locale, TimeZone timeZone) {
+        Map<String, SimpleDateFormat> byPattern = local.byLocale.get(locale);
+        if (byPattern == null) {
+            byPattern = new HashMap<String, SimpleDateFormat>();
+            local.byLocale.put(locale, byPattern);
+        }
+
+        SimpleDateFormat format = byPattern.get(pattern);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, locale);
+            byPattern.put(pattern, format);
+        }
+
+        // Setting the timezone resets the format's calendar, so only do it when it changes
+        TimeZone current = format.getTimeZone();
+        if (current != timeZone && !current.equals(timeZone)) {
+            format.setTimeZone(timeZone);
+        }
+        return format;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.TimeZone;
+
+/**
+ * Labels the day an event starts on as today, tomorrow, or its date.
+ *
+ * @author brianreber
+ */
+public class DateLabeler {
+
+    /**
+     * The format used for the date when a format isn't given
+     */
+    public static final String DEFAULT_FORMAT = "MMM d";
+
+    private final String today;
+    private final String tomorrow;
+
+    /**
+     * Creates a DateLabeler using the given labels
+     *
+     * @param today
+     * The label for events that start today
+     * @param tomorrow
+     * The label for events that start tomorrow
+     */
+    public DateLabeler(String today, String tomorrow) {
+        this.today = today;
+        this.tomorrow = tomorrow;
+    }
+
+    /**
+     * Figures out whether the given time is today or tomorrow.  If neither,
+     * returns the formatted date string.
+     *
+     * @param startMillis
+     * The start of the event, in milliseconds
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * The timezone the days are split in
+     * @param formatString
+     * The SimpleDateFormat pattern for the date, or null for DEFAULT_FORMAT
+     * @return
+     * Today, Tomorrow, or the date
+     */
+    public String getLabel(long startMillis, long now, TimeZone timeZone, String formatString) {
+        // Compare whole days, so the end of the year isn't a special case
+        int days = AgendaDays.getDaysFrom(startMillis, now, timeZone);
+        if (days == 1) {
+            return tomorrow;
+        } else if (days == 0) {
+            return today;
+        }
+
+        return DateFormats.format(formatString == null ? DEFAULT_FORMAT : formatString, startMillis, timeZone);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Builds the rows of the agenda list, with a separator row in front of the
+ * first event of each day. The events are sorted by start time, so the
+ * separators can be added in a single pass, comparing the day each event
+ * starts on with the day of the event before it. The label of each day is
+ * only formatted once.
+ *
+ * @param <T>
+ * The type of the rows
+ *
+ * @author brianreber
+ */
+public abstract class DateRowBuilder<T> {
+
+    private final TimeZone timeZone;
+
+    /**
+     * Creates a builder that splits the days in the given timezone
+     *
+     * @param timeZone
+     */
+    public DateRowBuilder(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Gets the time the given event starts at
+     *
+     * @param event
+     * @return
+     * The start of the event, in milliseconds
+     */
+    protected abstract long getStartMillis(T event);
+
+    /**
+     * Gets the label of the day the given time is on
+     *
+     * @param startMillis
+     * The start of the first event of the day, in milliseconds
+     * @return
+     * The label that is shown on the separator for that day
+     */
+    protected abstract String getDateString(long startMillis);
+
+    /**
+     * Creates the separator row for a day
+     *
+     * @param dateString
+     * The label of the day
+     * @return
+     * The separator row
+     */
+    protected abstract T createSeparator(String dateString);
+
+    /**
+     * Adds Date strings in the list so that they can act as separators in the
+     * ListView.
+     *
+     * @param events
+     * The events, sorted by start time
+     * @return A list of the events with separators inserted, which supports random access
+     */
+    public List<T> build(Collection<? extends T> events) {
+        // Room for the events and a separator for about every few of them
+        List<T> rows = new ArrayList<T>(events.size() + events.size() / 4 + 1);
+
+        boolean first = true;
+        int lastDay = 0;
+        for (T event : events) {
+            long start = getStartMillis(event);
+            int day = AgendaDays.getJulianDay(start, timeZone);
+            if (first || day != lastDay) {
+                rows.add(createSeparator(getDateString(start)));
+                lastDay = day;
+                first = false;
+            }
+            rows.add(event);
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.TimeZone;
+
+/**
+ * A table of the labels of the days from today through a number of days
+ * from now, built once per refresh. The days are Julian days, so today,
+ * tomorrow and the end of the year need no special cases, and looking up
+ * the label of a day is an index into an array. Each label is only
+ * formatted the first time it is looked up.
+ *
+ * A table isn't thread safe, so each refresh should build its own.
+ *
+ * @author brianreber
+ */
+public class DayLabels {
+
+    private final DateLabeler labeler;
+    private final long now;
+    private final TimeZone timeZone;
+    private final String format;
+
+    /**
+     * The Julian day of today
+     */
+    private final int today;
+
+    /**
+     * The label of each day, starting at today. Filled in as they are looked up.
+     */
+    private final String[] labels;
+
+    /**
+     * Creates a table of the labels for today through numDays from now
+     *
+     * @param labeler
+     * How each day is labeled
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * The timezone the days are split in
+     * @param numDays
+     * The number of days after today the table covers. The days outside
+     * of the table are still labeled, they just aren't kept.
+     * @param format
+     * The SimpleDateFormat pattern for the date, or null for DateLabeler.DEFAULT_FORMAT
+     */
+    public DayLabels(DateLabeler labeler, long now, TimeZone timeZone, int numDays, String format) {
+        this.labeler = labeler;
+        this.now = now;
+        this.timeZone = timeZone;
+        this.format = format;
+        this.today = AgendaDays.getJulianDay(now, timeZone);
+
+        // Include the day numDays from now, since the window ends partway through it
+        this.labels = new String[Math.max(numDays, 0) + 1];
+    }
+
+    /**
+     * @return the Julian day of today
+     */
+    public int getToday() {
+        return today;
+    }
+
+    /**
+     * Gets the label of the given day
+     *
+     * @param julianDay
+     * @return
+     * Today, Tomorrow, or the date
+     */
+    public String getLabel(int julianDay) {
+        int index = julianDay - today;
+        if (index < 0 || index >= labels.length) {
+            // Events that are already going on can start before today
+            return labeler.getLabel(getMiddleOfDay(julianDay), now, timeZone, format);
+        }
+
+        String label = labels[index];
+        if (label == null) {
+            label = labeler.getLabel(getMiddleOfDay(julianDay), now, timeZone, format);
+            labels[index] = label;
+        }
+        return label;
+    }
+
+    /**
+     * Gets the label of the day the given time is on
+     *
+     * @param millis
+     * The time, in milliseconds
+     * @return
+     * Today, Tomorrow, or the date
+     */
+    public String getLabelForTime(long millis) {
+        return getLabel(AgendaDays.getJulianDay(millis, timeZone));
+    }
+
+    /**
+     * Gets a time in the middle of the given day, so that a daylight savings
+     * change can't move it into the day next to it
+     */
+    private long getMiddleOfDay(int julianDay) {
+        long millis = (julianDay - AgendaDays.EPOCH_JULIAN_DAY) * AgendaDays.DAY_IN_MILLIS + AgendaDays.DAY_IN_MILLIS / 2;
+        return millis - timeZone.getOffset(millis);
+    }
+}
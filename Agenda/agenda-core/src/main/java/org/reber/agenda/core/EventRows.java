@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The rows of the agenda list for a table of events: each event, with a
+ * separator in front of the first event of each day. The events are read
+ * from the table by index, so only the position of each event and the
+ * labels of the separators are stored, rather than an object per row.
+ *
+ * @author brianreber
+ */
+public class EventRows {
+
+    private final EventTable events;
+
+    /**
+     * For each row, the row of its event in the table, or -1 minus the index
+     * of its label if it is a separator
+     */
+    private final int[] rows;
+
+    private final String[] labels;
+
+    /**
+     * Works out the rows of the given events
+     *
+     * @param events
+     * The events, sorted by start time
+     * @param dayLabels
+     * The labels of the days, which are looked up while the rows are built
+     * @param timeZone
+     * The timezone the days are split in
+     */
+    public EventRows(EventTable events, DayLabels dayLabels, TimeZone timeZone) {
+        this.events = events;
+
+        // Room for the events and a separator for about every few of them
+        int[] rows = new int[events.size() + events.size() / 4 + 1];
+        int count = 0;
+        List<String> labels = new ArrayList<String>();
+
+        int lastDay = 0;
+        for (int i = 0; i < events.size(); i++) {
+            int day = AgendaDays.getJulianDay(events.getBegin(i), timeZone);
+            if (i == 0 || day != lastDay) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, 2 * count);
+                }
+                rows[count++] = -1 - labels.size();
+                labels.add(dayLabels.getLabel(day));
+                lastDay = day;
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * count);
+            }
+            rows[count++] = i;
+        }
+
+        this.rows = count == rows.length ? rows : Arrays.copyOf(rows, count);
+        this.labels = labels.toArray(new String[labels.size()]);
+    }
+
+    /**
+     * @return the number of rows, counting the separators
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return the events the rows show
+     */
+    public EventTable getEvents() {
+        return events;
+    }
+
+    /**
+     * @param position
+     * The index of the row
+     * @return
+     * Whether the row is a day separator rather than an event
+     */
+    public boolean isSeparator(int position) {
+        return rows[position] < 0;
+    }
+
+    /**
+     * @param position
+     * The index of a separator row
+     * @return
+     * The label of the day the separator starts
+     */
+    public String getLabel(int position) {
+        return labels[-1 - rows[position]];
+    }
+
+    /**
+     * @param position
+     * The index of an event row
+     * @return
+     * The row of the event in the table
+     */
+    public int getEventRow(int position) {
+        return rows[position];
+    }
+}
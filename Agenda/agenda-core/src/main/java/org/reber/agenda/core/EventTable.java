@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.Arrays;
+
+/**
+ * A table of events, sorted by start time, that is stored as a set of parallel
+ * arrays instead of an Event object per row. The titles and locations are kept
+ * in a string pool so repeated strings are only stored once. The pool is an open
+ * addressing hash table of string ids, so looking a string up doesn't box anything.
+ *
+ * @author brianreber
+ */
+public class EventTable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final byte FLAG_ALL_DAY = 1;
+
+    private long[] begin;
+    private long[] end;
+    private int[] color;
+    private int[] eventId;
+    private byte[] flags;
+    private int[] title;
+    private int[] location;
+    private int size;
+
+    /**
+     * The pooled strings, by id
+     */
+    private String[] strings;
+    private int stringCount;
+
+    /**
+     * The hash table of the pool. Each slot holds the id of a string plus one, or 0
+     * if it is empty. Its length is a power of two, and it is kept at most half full.
+     */
+    private int[] stringSlots;
+
+    /**
+     * Creates an empty EventTable
+     */
+    public EventTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty EventTable with room for the given number of rows
+     *
+     * @param capacity
+     */
+    public EventTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        begin = new long[capacity];
+        end = new long[capacity];
+        color = new int[capacity];
+        eventId = new int[capacity];
+        flags = new byte[capacity];
+        title = new int[capacity];
+        location = new int[capacity];
+
+        // Most rows share their location with another row, and many share their title
+        strings = new String[capacity];
+        stringSlots = new int[tableSizeFor(2 * capacity)];
+    }
+
+    /**
+     * @return the number of rows in this table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether there are any rows in this table
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a row to the end of this table. Rows must be added in order of start time.
+     *
+     * @param title
+     * The title of the event
+     * @param begin
+     * The start of the event, in milliseconds
+     * @param end
+     * The end of the event, in milliseconds
+     * @param allDay
+     * Whether this is an all-day event
+     * @param color
+     * The color of the calendar it belongs to
+     * @param location
+     * The location of the event
+     * @param eventId
+     * The id of the event
+     */
+    public void add(String title, long begin, long end, boolean allDay, int color, String location, int eventId) {
+        ensureCapacity(size + 1);
+        this.begin[size] = begin;
+        this.end[size] = end;
+        this.color[size] = color;
+        this.eventId[size] = eventId;
+        this.flags[size] = allDay ? FLAG_ALL_DAY : 0;
+        this.title[size] = intern(title);
+        this.location[size] = intern(location);
+        size++;
+    }
+
+    /**
+     * Adds the given row of another table to the end of this table
+     *
+     * @param other
+     * The table to copy the row from
+     * @param row
+     * The row to copy
+     */
+    public void add(EventTable other, int row) {
+        add(other.getTitle(row), other.begin[row], other.end[row], other.isAllDay(row),
+                other.color[row], other.getLocation(row), other.eventId[row]);
+    }
+
+    /**
+     * Adds all of the rows of another table to the end of this table
+     *
+     * @param other
+     */
+    public void addAll(EventTable other) {
+        ensureCapacity(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            add(other, i);
+        }
+    }
+
+    public long getBegin(int row) {
+        return begin[row];
+    }
+
+    public long getEnd(int row) {
+        return end[row];
+    }
+
+    public int getColor(int row) {
+        return color[row];
+    }
+
+    public int getEventId(int row) {
+        return eventId[row];
+    }
+
+    public boolean isAllDay(int row) {
+        return (flags[row] & FLAG_ALL_DAY) != 0;
+    }
+
+    public String getTitle(int row) {
+        return strings[title[row]];
+    }
+
+    public String getLocation(int row) {
+        return strings[location[row]];
+    }
+
+    /**
+     * Finds the first row that starts at or after the given time
+     *
+     * @param time
+     * The time to search for, in milliseconds
+     * @return
+     * The index of the first row starting at or after time, or size() if there isn't one
+     */
+    public int indexOfStart(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (begin[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the next time after the given time that one of the rows starts, or
+     * one that has already started ends. That is when anything showing the rows
+     * needs to be updated.
+     *
+     * @param time
+     * The current time, in milliseconds
+     * @return
+     * The time of the next start or end, or Long.MAX_VALUE if there isn't one
+     */
+    public long getNextChange(long time) {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < size && begin[i] < next; i++) {
+            if (begin[i] > time) {
+                // The rows are sorted by start, so none of the later ones start sooner
+                next = begin[i];
+            } else if (end[i] > time && end[i] < next) {
+                next = end[i];
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Removes the rows that have ended by the given time. Only the rows that started
+     * before the given time can have ended, so only those rows are looked at.
+     *
+     * @param time
+     * The current time, in milliseconds
+     */
+    public void removeEnded(long time) {
+        int started = indexOfStart(time + 1);
+        int kept = 0;
+        for (int i = 0; i < started; i++) {
+            if (end[i] > time) {
+                move(i, kept++);
+            }
+        }
+        if (kept == started) {
+            return;
+        }
+
+        int removed = started - kept;
+        for (int i = started; i < size; i++) {
+            move(i, i - removed);
+        }
+        size -= removed;
+
+        // Don't let the string pool grow forever as rows come and go
+        if (stringCount > 2 * size + DEFAULT_CAPACITY) {
+            compactStrings();
+        }
+    }
+
+    /**
+     * Removes all of the rows from this table
+     */
+    public void clear() {
+        size = 0;
+        Arrays.fill(strings, 0, stringCount, null);
+        stringCount = 0;
+        Arrays.fill(stringSlots, 0);
+    }
+
+    private void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        begin[to] = begin[from];
+        end[to] = end[from];
+        color[to] = color[from];
+        eventId[to] = eventId[from];
+        flags[to] = flags[from];
+        title[to] = title[from];
+        location[to] = location[from];
+    }
+
+    private int intern(String s) {
+        if (s == null) {
+            s = "";
+        }
+
+        int mask = stringSlots.length - 1;
+        int slot = hash(s) & mask;
+        for (int id = stringSlots[slot] - 1; id >= 0; id = stringSlots[slot] - 1) {
+            if (strings[id].equals(s)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = stringCount++;
+        if (id == strings.length) {
+            strings = Arrays.copyOf(strings, 2 * id);
+        }
+        strings[id] = s;
+        stringSlots[slot] = id + 1;
+
+        if (2 * stringCount > stringSlots.length) {
+            rehash(2 * stringSlots.length);
+        }
+        return id;
+    }
+
+    private void rehash(int length) {
+        stringSlots = new int[length];
+        int mask = length - 1;
+        for (int id = 0; id < stringCount; id++) {
+            int slot = hash(strings[id]) & mask;
+            while (stringSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            stringSlots[slot] = id + 1;
+        }
+    }
+
+    private void compactStrings() {
+        String[] oldStrings = strings;
+        strings = new String[Math.max(2 * size, DEFAULT_CAPACITY)];
+        stringCount = 0;
+        stringSlots = new int[tableSizeFor(2 * strings.length)];
+        for (int i = 0; i < size; i++) {
+            title[i] = intern(oldStrings[title[i]]);
+            location[i] = intern(oldStrings[location[i]]);
+        }
+    }
+
+    /**
+     * Spreads the high bits of the hash code down, since the table only uses the low ones
+     */
+    private static int hash(String s) {
+        int h = s.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the smallest power of two that is at least the given number
+     */
+    private static int tableSizeFor(int n) {
+        return n <= 1 ? 2 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= begin.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, begin.length * 2);
+        begin = Arrays.copyOf(begin, newCapacity);
+        end = Arrays.copyOf(end, newCapacity);
+        color = Arrays.copyOf(color, newCapacity);
+        eventId = Arrays.copyOf(eventId, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        title = Arrays.copyOf(title, newCapacity);
+        location = Arrays.copyOf(location, newCapacity);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The events of a set of calendars for a range of days, sorted by start time.
+ * As time moves forward the expired events are dropped from the front, and only
+ * the newly exposed days need to be read and added at the end.
+ *
+ * Callers are expected to synchronize on the window while using it, which
+ * query does on its own.
+ *
+ * @author brianreber
+ */
+public class EventWindow {
+
+    private final EventTable events = new EventTable();
+
+    /**
+     * The first Julian day covered by this window
+     */
+    private int firstDay;
+
+    /**
+     * The Julian day after the last day covered by this window
+     */
+    private int endDay;
+
+    /**
+     * Moves the start of the window up to the given day, dropping any events
+     * that have already ended.
+     *
+     * @param today
+     * The current Julian day
+     * @param now
+     * The current time, in milliseconds
+     */
+    public void advance(int today, long now) {
+        if (endDay <= today) {
+            // Nothing we have is still useful
+            events.clear();
+            firstDay = today;
+            endDay = today;
+            return;
+        }
+
+        events.removeEnded(now);
+        firstDay = today;
+    }
+
+    /**
+     * @return whether this window doesn't cover any days yet
+     */
+    public boolean isEmpty() {
+        return endDay <= firstDay;
+    }
+
+    /**
+     * @return the Julian day after the last day covered by this window
+     */
+    public int getEndDay() {
+        return endDay;
+    }
+
+    /**
+     * Adds the events of the newly covered days to the end of the window
+     *
+     * @param tail
+     * The events that start on or after the current end day, sorted by start time
+     * @param newEndDay
+     * The Julian day after the last day now covered by this window
+     */
+    public void append(EventTable tail, int newEndDay) {
+        events.addAll(tail);
+        endDay = newEndDay;
+    }
+
+    /**
+     * @return the events in this window, sorted by start time
+     */
+    public EventTable getEvents() {
+        return events;
+    }
+
+    /**
+     * Gets at most maxEvents events from the current time through numDays past now,
+     * reading the days that this window doesn't cover yet from the given source.
+     * If the window already has some days, only the instances that start after
+     * them are read.
+     *
+     * @param source
+     * Where to read the missing days from
+     * @param calendars
+     * The ids of the calendars the window is for, mapped to their colors
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * The timezone the days are split in
+     * @param numDays
+     * The number of days after the current time to get the events from
+     * @param showCurrentEvent
+     * Whether to include events that have started but not ended yet
+     * @param maxEvents
+     * The maximum number of events to return
+     * @return
+     * A table of the first maxEvents events, sorted by start time
+     */
+    public EventTable query(InstanceSource source, Map<String, Integer> calendars, long now, TimeZone timeZone,
+                            int numDays, boolean showCurrentEvent, int maxEvents) {
+        return query(source, calendars, now, timeZone, 0, numDays, showCurrentEvent, maxEvents);
+    }
+
+    /**
+     * Gets at most maxEvents events that start in the given range of days, so that a
+     * long list can be read a page at a time. The window is extended to cover the
+     * range, so the days before it are read too if they haven't been yet. Only the
+     * range starting today includes the events that are already going on.
+     *
+     * @param source
+     * Where to read the missing days from
+     * @param calendars
+     * The ids of the calendars the window is for, mapped to their colors
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * The timezone the days are split in
+     * @param fromDay
+     * The number of days after today that the range starts
+     * @param numDays
+     * The number of days in the range
+     * @param showCurrentEvent
+     * Whether to include events that have started but not ended yet
+     * @param maxEvents
+     * The maximum number of events to return
+     * @return
+     * A table of the first maxEvents events in the range, sorted by start time
+     */
+    public synchronized EventTable query(InstanceSource source, Map<String, Integer> calendars, long now, TimeZone timeZone,
+                                         int fromDay, int numDays, boolean showCurrentEvent, int maxEvents) {
+        EventTable result = new EventTable();
+        if (calendars.isEmpty() || maxEvents <= 0 || numDays <= 0) {
+            return result;
+        }
+
+        int today = AgendaDays.getJulianDay(now, timeZone);
+        int lastDay = today + fromDay + numDays;
+        // Days aren't all 24 hours long, so find where each end of the range actually starts
+        long rangeStart = AgendaDays.getStartOfJulianDay(today + fromDay, timeZone);
+        long rangeEnd = AgendaDays.getStartOfJulianDay(lastDay, timeZone);
+
+        advance(today, now);
+        if (endDay < lastDay) {
+            // Only read the days that the window doesn't cover yet. If the window already
+            // has some days, ignore the instances that started in them since we have those.
+            append(source.queryInstances(calendars, endDay, lastDay, !isEmpty()), lastDay);
+        }
+
+        int first = fromDay > 0 ? events.indexOfStart(rangeStart) : 0;
+        int last = events.indexOfStart(rangeEnd);
+        for (int i = first; i < last && result.size() < maxEvents; i++) {
+            long begin = events.getBegin(i);
+            long end = events.getEnd(i);
+            if ((begin > now && !showCurrentEvent) || (showCurrentEvent && end > now)) {
+                result.add(events, i);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * An InstanceSource that keeps its instances in memory, so the agenda can be
+ * read without a calendar provider. The instances are stored the way the
+ * calendar provider stores them, so all-day events start at midnight UTC, and
+ * are filtered and sorted the way the provider does it.
+ *
+ * @author brianreber
+ */
+public class InMemoryInstanceSource implements InstanceSource {
+
+    private final TimeZone timeZone;
+    private final List<Instance> instances = new ArrayList<Instance>();
+    private int queryCount;
+
+    /**
+     * Creates an empty source whose days are split in the given timezone
+     *
+     * @param timeZone
+     */
+    public InMemoryInstanceSource(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Adds an instance to this source
+     *
+     * @param calendarId
+     * The id of the calendar the event belongs to
+     * @param title
+     * The title of the event
+     * @param begin
+     * The start of the event, in milliseconds
+     * @param end
+     * The end of the event, in milliseconds
+     * @param allDay
+     * Whether this is an all-day event, in which case begin and end are midnight UTC
+     * @param location
+     * The location of the event
+     * @param eventId
+     * The id of the event
+     */
+    public synchronized void add(String calendarId, String title, long begin, long end, boolean allDay,
+                                 String location, int eventId) {
+        instances.add(new Instance(calendarId, title, begin, end, allDay, location, eventId));
+    }
+
+    /**
+     * Removes all of the instances from this source
+     */
+    public synchronized void clear() {
+        instances.clear();
+    }
+
+    /**
+     * @return the number of times this source has been queried
+     */
+    public synchronized int getQueryCount() {
+        return queryCount;
+    }
+
+    @Override
+    public synchronized EventTable queryInstances(Map<String, Integer> calendars, int fromDay, int toDay,
+                                                  boolean startingOnly) {
+        queryCount++;
+
+        List<Instance> matches = new ArrayList<Instance>();
+        for (Instance instance : instances) {
+            if (!calendars.containsKey(instance.calendarId)) {
+                continue;
+            }
+            int startDay = getDay(instance, instance.begin);
+            int endDay = getDay(instance, Math.max(instance.begin, instance.end - 1));
+            if (startDay < toDay && endDay >= fromDay && (!startingOnly || startDay >= fromDay)) {
+                matches.add(instance);
+            }
+        }
+
+        // The provider sorts by start day, then start minute
+        Collections.sort(matches, new Comparator<Instance>() {
+            @Override
+            public int compare(Instance lhs, Instance rhs) {
+                int lhsDay = getDay(lhs, lhs.begin);
+                int rhsDay = getDay(rhs, rhs.begin);
+                if (lhsDay != rhsDay) {
+                    return lhsDay < rhsDay ? -1 : 1;
+                }
+                int lhsMinute = getMinute(lhs);
+                int rhsMinute = getMinute(rhs);
+                return lhsMinute < rhsMinute ? -1 : (lhsMinute == rhsMinute ? 0 : 1);
+            }
+        });
+
+        return InstanceReader.read(new ListCursor(matches), calendars, timeZone);
+    }
+
+    /**
+     * All-day events are stored in UTC, so their days are too
+     */
+    private int getDay(Instance instance, long time) {
+        return instance.allDay ? AgendaDays.getJulianDay(time, 0) : AgendaDays.getJulianDay(time, timeZone);
+    }
+
+    private int getMinute(Instance instance) {
+        if (instance.allDay) {
+            return 0;
+        }
+        long offset = timeZone.getOffset(instance.begin);
+        long dayMillis = (instance.begin + offset) % AgendaDays.DAY_IN_MILLIS;
+        if (dayMillis < 0) {
+            dayMillis += AgendaDays.DAY_IN_MILLIS;
+        }
+        return (int) (dayMillis / (60 * 1000));
+    }
+
+    private static class Instance {
+        final String calendarId;
+        final String title;
+        final long begin;
+        final long end;
+        final boolean allDay;
+        final String location;
+        final int eventId;
+
+        Instance(String calendarId, String title, long begin, long end, boolean allDay, String location, int eventId) {
+            this.calendarId = calendarId;
+            this.title = title;
+            this.begin = begin;
+            this.end = end;
+            this.allDay = allDay;
+            this.location = location;
+            this.eventId = eventId;
+        }
+    }
+
+    /**
+     * Reads the matching instances like the rows of a query
+     */
+    private static class ListCursor implements InstanceCursor {
+        private final List<Instance> instances;
+        private Instance current;
+        private int position = -1;
+
+        ListCursor(List<Instance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public int getCount() {
+            return instances.size();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (position + 1 >= instances.size()) {
+                return false;
+            }
+            current = instances.get(++position);
+            return true;
+        }
+
+        @Override
+        public String getTitle() {
+            return current.title;
+        }
+
+        @Override
+        public long getBegin() {
+            return current.begin;
+        }
+
+        @Override
+        public long getEnd() {
+            return current.end;
+        }
+
+        @Override
+        public boolean isAllDay() {
+            return current.allDay;
+        }
+
+        @Override
+        public String getLocation() {
+            return current.location;
+        }
+
+        @Override
+        public int getEventId() {
+            return current.eventId;
+        }
+
+        @Override
+        public String getCalendarId() {
+            return current.calendarId;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+/**
+ * The rows of an instance query, one instance at a time. The times are
+ * the ones the calendar provider stores, so all-day events start at
+ * midnight UTC.
+ *
+ * @author brianreber
+ */
+public interface InstanceCursor {
+
+    /**
+     * @return the number of rows, so that the table they are read in to can be sized up front
+     */
+    int getCount();
+
+    /**
+     * Moves to the next row
+     *
+     * @return
+     * false if there are no more rows
+     */
+    boolean moveToNext();
+
+    String getTitle();
+
+    long getBegin();
+
+    long getEnd();
+
+    boolean isAllDay();
+
+    String getLocation();
+
+    int getEventId();
+
+    String getCalendarId();
+}
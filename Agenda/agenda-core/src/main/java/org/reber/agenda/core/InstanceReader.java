@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reads the rows of an instance query into an EventTable
+ *
+ * @author brianreber
+ */
+public class InstanceReader {
+
+    private InstanceReader() {
+    }
+
+    /**
+     * Reads all of the remaining rows of the given cursor
+     *
+     * @param cursor
+     * The rows, sorted by start time
+     * @param calendars
+     * The ids of the calendars that were queried, mapped to the color of each calendar
+     * @param timeZone
+     * The current timezone
+     * @return
+     * A table of the events, sorted by start time
+     */
+    public static EventTable read(InstanceCursor cursor, Map<String, Integer> calendars, TimeZone timeZone) {
+        EventTable events = new EventTable(cursor.getCount());
+        while (cursor.moveToNext()) {
+            long begin = cursor.getBegin();
+            long end = cursor.getEnd();
+            boolean allDay = cursor.isAllDay();
+
+            // All day events have times that are off by the Timezone offset, so we
+            // need to fix that to get it to display correctly in the list and on the widget
+            if (allDay) {
+                begin = AgendaDays.fixAllDayStart(begin, timeZone);
+                end = AgendaDays.fixAllDayEnd(end, timeZone);
+            }
+
+            String location = cursor.getLocation();
+            events.add(cursor.getTitle(), begin, end, allDay, calendars.get(cursor.getCalendarId()),
+                    (location == null ? "" : location), cursor.getEventId());
+        }
+        return events;
+    }
+}
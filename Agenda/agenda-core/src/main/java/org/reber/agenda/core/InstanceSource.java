@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.Map;
+
+/**
+ * Somewhere the instances of calendar events can be read from. On a device
+ * this is the calendar provider.
+ *
+ * @author brianreber
+ */
+public interface InstanceSource {
+
+    /**
+     * Reads all of the instances of the given calendars in the given days.
+     * The times of all-day events are fixed with AgendaDays.fixAllDayStart
+     * and AgendaDays.fixAllDayEnd.
+     *
+     * @param calendars
+     * The ids of the calendars to read, mapped to the color of each calendar
+     * @param fromDay
+     * The first Julian day to read
+     * @param toDay
+     * The Julian day after the last day to read
+     * @param startingOnly
+     * Whether to skip the instances that started before fromDay
+     * @return
+     * A table of events from the given calendars, sorted by start time
+     */
+    EventTable queryInstances(Map<String, Integer> calendars, int fromDay, int toDay, boolean startingOnly);
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import java.util.TimeZone;
+
+/**
+ * Labels the time of an event with its start and end
+ *
+ * @author brianreber
+ */
+public class TimeLabeler {
+
+    private final String allDayLabel;
+    private final String nowLabel;
+    private final boolean use24Hour;
+
+    /**
+     * Creates a TimeLabeler using the given labels
+     *
+     * @param allDayLabel
+     * The label for all day events
+     * @param nowLabel
+     * The label used instead of the start of events that are happening now
+     * @param use24Hour
+     * Whether to show the times with a 24 hour clock
+     */
+    public TimeLabeler(String allDayLabel, String nowLabel, boolean use24Hour) {
+        this.allDayLabel = allDayLabel;
+        this.nowLabel = nowLabel;
+        this.use24Hour = use24Hour;
+    }
+
+    /**
+     * Gets the time of the start and end of an event, formatted in this manner:
+     * "All Day" if the event is an all day event
+     * "HH:MM AM/PM - HH:MM AM/PM"
+     *
+     * @param start
+     * The start of the event, in milliseconds
+     * @param end
+     * The end of the event, in milliseconds
+     * @param allDay
+     * Whether this is an all day event
+     * @param now
+     * The current time, in milliseconds
+     * @param timeZone
+     * The timezone to show the times in
+     * @return
+     * A string with the event's start and end time
+     */
+    public String getLabel(long start, long end, boolean allDay, long now, TimeZone timeZone) {
+        if (allDay) {
+            return allDayLabel;
+        }
+
+        String pattern = use24Hour ? "H:mm" : "h:mm a";
+        String endString = DateFormats.format(pattern, end, timeZone);
+
+        if (start < now && end > now) {
+            return nowLabel + " - " + endString;
+        } else {
+            return DateFormats.format(pattern, start, timeZone) + " - " + endString;
+        }
+    }
+}
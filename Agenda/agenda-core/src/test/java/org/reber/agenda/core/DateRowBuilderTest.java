@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The rows are the start times of the events, and the separators are
+ * labeled with the date the builder was asked for.
+ *
+ * @author brianreber
+ */
+public class DateRowBuilderTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Chicago");
+
+    private final List<Long> labeled = new ArrayList<Long>();
+
+    private final DateRowBuilder<Object> builder = new DateRowBuilder<Object>(TIME_ZONE) {
+        @Override
+        protected long getStartMillis(Object event) {
+            return (Long) event;
+        }
+
+        @Override
+        protected String getDateString(long startMillis) {
+            labeled.add(startMillis);
+            return DateFormats.format("yyyy-MM-dd", startMillis, TIME_ZONE);
+        }
+
+        @Override
+        protected Object createSeparator(String dateString) {
+            return dateString;
+        }
+    };
+
+    @Test
+    public void testSeparators() {
+        long first = time(2014, 3, 3, 9, 0);
+        long late = time(2014, 3, 3, 23, 30);
+        long nextDay = time(2014, 3, 4, 0, 30);
+        long later = time(2014, 3, 6, 12, 0);
+
+        List<Object> rows = builder.build(Arrays.<Object>asList(first, late, nextDay, later));
+
+        assertEquals(Arrays.<Object>asList("2014-03-03", first, late, "2014-03-04", nextDay, "2014-03-06", later), rows);
+        // Each day is only labeled once, from its first event
+        assertEquals(Arrays.asList(first, nextDay, later), labeled);
+    }
+
+    @Test
+    public void testDaysAreLocal() {
+        // 23:30 in Chicago is the next day in UTC, but it still belongs to the day before
+        long morning = time(2014, 11, 1, 8, 0);
+        long night = time(2014, 11, 1, 23, 30);
+
+        List<Object> rows = builder.build(Arrays.<Object>asList(morning, night));
+
+        assertEquals(Arrays.<Object>asList("2014-11-01", morning, night), rows);
+    }
+
+    @Test
+    public void testDaylightSavings() {
+        // The day the clocks fall back is 25 hours long
+        long start = time(2014, 11, 2, 0, 30);
+        long end = time(2014, 11, 2, 23, 30);
+        long nextDay = time(2014, 11, 3, 0, 30);
+
+        List<Object> rows = builder.build(Arrays.<Object>asList(start, end, nextDay));
+
+        assertEquals(Arrays.<Object>asList("2014-11-02", start, end, "2014-11-03", nextDay), rows);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(builder.build(new ArrayList<Object>()).isEmpty());
+        assertTrue(labeled.isEmpty());
+    }
+
+    /**
+     * @param month
+     * The month, starting at 1
+     */
+    private static long time(int year, int month, int day, int hour, int minute) {
+        GregorianCalendar calendar = new GregorianCalendar(TIME_ZONE);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author brianreber
+ */
+public class DayLabelsTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Chicago");
+    private static final String FORMAT = "yyyy-MM-dd";
+
+    /**
+     * Counts the labels that are formatted
+     */
+    private static class CountingLabeler extends DateLabeler {
+        int count;
+
+        CountingLabeler() {
+            super("Today", "Tomorrow");
+        }
+
+        @Override
+        public String getLabel(long startMillis, long now, TimeZone timeZone, String formatString) {
+            count++;
+            return super.getLabel(startMillis, now, timeZone, formatString);
+        }
+    }
+
+    private CountingLabeler labeler;
+
+    @Before
+    public void setUp() {
+        labeler = new CountingLabeler();
+    }
+
+    @Test
+    public void testLabels() {
+        DayLabels labels = new DayLabels(labeler, time(2014, 3, 3, 10, 0), TIME_ZONE, 7, FORMAT);
+        int today = labels.getToday();
+
+        assertEquals(AgendaDays.getJulianDay(time(2014, 3, 3, 0, 0), TIME_ZONE), today);
+        assertEquals("Today", labels.getLabel(today));
+        assertEquals("Tomorrow", labels.getLabel(today + 1));
+        assertEquals("2014-03-05", labels.getLabel(today + 2));
+        assertEquals("2014-03-10", labels.getLabel(today + 7));
+    }
+
+    @Test
+    public void testLabelsAreCached() {
+        DayLabels labels = new DayLabels(labeler, time(2014, 3, 3, 10, 0), TIME_ZONE, 7, FORMAT);
+        int today = labels.getToday();
+
+        labels.getLabel(today + 2);
+        labels.getLabel(today + 2);
+        labels.getLabelForTime(time(2014, 3, 5, 23, 0));
+
+        assertEquals(1, labeler.count);
+    }
+
+    @Test
+    public void testDaysOutsideTable() {
+        DayLabels labels = new DayLabels(labeler, time(2014, 3, 3, 10, 0), TIME_ZONE, 1, FORMAT);
+        int today = labels.getToday();
+
+        // Events that are already going on can start before today
+        assertEquals("2014-03-02", labels.getLabel(today - 1));
+        assertEquals("2014-03-05", labels.getLabel(today + 2));
+        assertEquals("2014-03-05", labels.getLabel(today + 2));
+        assertEquals(3, labeler.count);
+    }
+
+    @Test
+    public void testLabelForTime() {
+        DayLabels labels = new DayLabels(labeler, time(2014, 3, 3, 10, 0), TIME_ZONE, 7, FORMAT);
+
+        assertEquals("Today", labels.getLabelForTime(time(2014, 3, 3, 0, 0)));
+        assertEquals("Today", labels.getLabelForTime(time(2014, 3, 3, 23, 59)));
+        assertEquals("Tomorrow", labels.getLabelForTime(time(2014, 3, 4, 0, 0)));
+    }
+
+    @Test
+    public void testEndOfYear() {
+        DayLabels labels = new DayLabels(labeler, time(2014, 12, 31, 22, 0), TIME_ZONE, 7, FORMAT);
+
+        assertEquals("Tomorrow", labels.getLabelForTime(time(2015, 1, 1, 9, 0)));
+        assertEquals("2015-01-02", labels.getLabelForTime(time(2015, 1, 2, 9, 0)));
+    }
+
+    @Test
+    public void testDaylightSavings() {
+        // The clocks fall back on November 2nd, so it is 25 hours long
+        DayLabels labels = new DayLabels(labeler, time(2014, 11, 1, 10, 0), TIME_ZONE, 7, FORMAT);
+        int today = labels.getToday();
+
+        assertEquals("Tomorrow", labels.getLabelForTime(time(2014, 11, 2, 23, 30)));
+        assertEquals("2014-11-03", labels.getLabel(today + 2));
+        assertEquals("2014-11-03", labels.getLabelForTime(time(2014, 11, 3, 0, 30)));
+    }
+
+    /**
+     * @param month
+     * The month, starting at 1
+     */
+    private static long time(int year, int month, int day, int hour, int minute) {
+        GregorianCalendar calendar = new GregorianCalendar(TIME_ZONE);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
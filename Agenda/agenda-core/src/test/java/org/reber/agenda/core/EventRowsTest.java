@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author brianreber
+ */
+public class EventRowsTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Chicago");
+
+    private DayLabels labels;
+
+    @Before
+    public void setUp() {
+        labels = new DayLabels(new DateLabeler("Today", "Tomorrow"), time(2014, 3, 3, 8, 0), TIME_ZONE, 7, "yyyy-MM-dd");
+    }
+
+    @Test
+    public void testSeparators() {
+        EventTable events = new EventTable();
+        events.add("First", time(2014, 3, 3, 9, 0), time(2014, 3, 3, 10, 0), false, 0, null, 1);
+        // 23:30 in Chicago is the next day in UTC, but it still belongs to today
+        events.add("Late", time(2014, 3, 3, 23, 30), time(2014, 3, 4, 0, 30), false, 0, null, 2);
+        events.add("Tomorrow", time(2014, 3, 4, 0, 30), time(2014, 3, 4, 1, 0), false, 0, null, 3);
+        events.add("Later", time(2014, 3, 6, 12, 0), time(2014, 3, 6, 13, 0), false, 0, null, 4);
+
+        EventRows rows = new EventRows(events, labels, TIME_ZONE);
+
+        assertEquals(7, rows.size());
+        assertRow(rows, 0, "Today");
+        assertRow(rows, 1, events, "First");
+        assertRow(rows, 2, events, "Late");
+        assertRow(rows, 3, "Tomorrow");
+        assertRow(rows, 4, events, "Tomorrow");
+        assertRow(rows, 5, "2014-03-06");
+        assertRow(rows, 6, events, "Later");
+        assertEquals(3, rows.getEventRow(6));
+    }
+
+    @Test
+    public void testEveryEventOnItsOwnDay() {
+        // More separators than the rows were first sized for
+        EventTable events = new EventTable();
+        for (int i = 0; i < 10; i++) {
+            events.add("Day " + i, time(2014, 3, 3 + i, 9, 0), time(2014, 3, 3 + i, 10, 0), false, 0, null, i);
+        }
+
+        EventRows rows = new EventRows(events, labels, TIME_ZONE);
+
+        assertEquals(20, rows.size());
+        assertRow(rows, 18, "2014-03-12");
+        assertRow(rows, 19, events, "Day 9");
+    }
+
+    @Test
+    public void testEmpty() {
+        EventRows rows = new EventRows(new EventTable(), labels, TIME_ZONE);
+
+        assertEquals(0, rows.size());
+        assertTrue(rows.getEvents().isEmpty());
+    }
+
+    private static void assertRow(EventRows rows, int position, String label) {
+        assertTrue(rows.isSeparator(position));
+        assertEquals(label, rows.getLabel(position));
+    }
+
+    private static void assertRow(EventRows rows, int position, EventTable events, String title) {
+        assertFalse(rows.isSeparator(position));
+        assertEquals(title, events.getTitle(rows.getEventRow(position)));
+    }
+
+    /**
+     * @param month
+     * The month, starting at 1
+     */
+    private static long time(int year, int month, int day, int hour, int minute) {
+        GregorianCalendar calendar = new GregorianCalendar(TIME_ZONE);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
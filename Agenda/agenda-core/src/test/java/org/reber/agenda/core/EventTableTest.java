@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author brianreber
+ */
+public class EventTableTest {
+
+    private EventTable table;
+
+    @Before
+    public void setUp() {
+        table = new EventTable(2);
+        table.add("Long", 0, 100, false, 1, "Here", 1);
+        table.add("Short", 10, 15, false, 2, null, 2);
+        table.add("Middle", 20, 50, true, 3, "There", 3);
+        table.add("Later", 60, 70, false, 4, "Here", 4);
+    }
+
+    @Test
+    public void testAddKeepsRows() {
+        assertEquals(4, table.size());
+        assertEquals("Middle", table.getTitle(2));
+        assertEquals("There", table.getLocation(2));
+        assertEquals("", table.getLocation(1));
+        assertEquals(20, table.getBegin(2));
+        assertEquals(50, table.getEnd(2));
+        assertEquals(3, table.getColor(2));
+        assertEquals(3, table.getEventId(2));
+        assertTrue(table.isAllDay(2));
+        assertFalse(table.isAllDay(3));
+    }
+
+    @Test
+    public void testIndexOfStart() {
+        table.add("Same", 60, 80, false, 5, null, 5);
+
+        assertEquals(0, table.indexOfStart(-1));
+        assertEquals(0, table.indexOfStart(0));
+        assertEquals(1, table.indexOfStart(1));
+        assertEquals(3, table.indexOfStart(60));
+        assertEquals(5, table.indexOfStart(61));
+        assertEquals(0, new EventTable().indexOfStart(10));
+    }
+
+    @Test
+    public void testGetNextChange() {
+        // The next row starts before any of the started ones end
+        assertEquals(10, table.getNextChange(5));
+        assertEquals(15, table.getNextChange(10));
+        // A started row ends before the next one starts
+        assertEquals(50, table.getNextChange(30));
+        assertEquals(60, table.getNextChange(55));
+        assertEquals(70, table.getNextChange(65));
+        assertEquals(100, table.getNextChange(70));
+        assertEquals(Long.MAX_VALUE, table.getNextChange(100));
+        assertEquals(Long.MAX_VALUE, new EventTable().getNextChange(0));
+    }
+
+    @Test
+    public void testRemoveEnded() {
+        table.removeEnded(30);
+
+        assertEquals(3, table.size());
+        assertEquals("Long", table.getTitle(0));
+        assertEquals("Middle", table.getTitle(1));
+        assertEquals("There", table.getLocation(1));
+        assertTrue(table.isAllDay(1));
+        assertEquals("Later", table.getTitle(2));
+        assertEquals(60, table.getBegin(2));
+        assertEquals(4, table.getEventId(2));
+    }
+
+    @Test
+    public void testRemoveEndedKeepsRowsStartingNow() {
+        table.removeEnded(60);
+
+        assertEquals(2, table.size());
+        assertEquals("Long", table.getTitle(0));
+        assertEquals("Later", table.getTitle(1));
+    }
+
+    @Test
+    public void testRemoveEndedNothingEnded() {
+        table.removeEnded(12);
+
+        assertEquals(4, table.size());
+        assertEquals("Short", table.getTitle(1));
+    }
+
+    @Test
+    public void testRemoveEndedCompactsStrings() {
+        EventTable many = new EventTable();
+        for (int i = 0; i < 100; i++) {
+            many.add("Event " + i, i, i + 1, false, 0, "Room " + i, i);
+        }
+
+        many.removeEnded(98);
+
+        assertEquals(2, many.size());
+        assertEquals("Event 98", many.getTitle(0));
+        assertEquals("Room 98", many.getLocation(0));
+        assertEquals("Event 99", many.getTitle(1));
+        assertEquals("Room 99", many.getLocation(1));
+    }
+
+    @Test
+    public void testStringPoolGrows() {
+        EventTable small = new EventTable(1);
+        for (int i = 0; i < 100; i++) {
+            small.add("Title " + (i % 7), i, i + 1, false, 0, "Room " + i, i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Title " + (i % 7), small.getTitle(i));
+            assertEquals("Room " + i, small.getLocation(i));
+        }
+    }
+
+    @Test
+    public void testAddAll() {
+        EventTable copy = new EventTable();
+        copy.addAll(table);
+
+        assertEquals(4, copy.size());
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(table.getTitle(i), copy.getTitle(i));
+            assertEquals(table.getLocation(i), copy.getLocation(i));
+            assertEquals(table.getBegin(i), copy.getBegin(i));
+            assertEquals(table.getEnd(i), copy.getEnd(i));
+            assertEquals(table.isAllDay(i), copy.isAllDay(i));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        table.clear();
+
+        assertTrue(table.isEmpty());
+        table.add("Again", 5, 6, false, 0, null, 9);
+        assertEquals("Again", table.getTitle(0));
+    }
+}
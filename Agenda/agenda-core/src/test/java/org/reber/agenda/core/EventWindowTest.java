@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the window from an InMemoryInstanceSource, which counts the queries
+ * so that we can tell which days were read again.
+ *
+ * @author brianreber
+ */
+public class EventWindowTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Chicago");
+    private static final int COLOR = 0xFF00FF00;
+
+    private InMemoryInstanceSource source;
+    private Map<String, Integer> calendars;
+    private EventWindow window;
+
+    @Before
+    public void setUp() {
+        source = new InMemoryInstanceSource(TIME_ZONE);
+        calendars = new HashMap<String, Integer>();
+        calendars.put("1", COLOR);
+        window = new EventWindow();
+
+        add("Monday", time(2014, 3, 3, 10, 0), time(2014, 3, 3, 11, 0), 1);
+        add("Tuesday", time(2014, 3, 4, 9, 0), time(2014, 3, 4, 10, 0), 2);
+        add("Overnight", time(2014, 3, 4, 23, 0), time(2014, 3, 5, 1, 0), 3);
+        add("Wednesday", time(2014, 3, 5, 9, 0), time(2014, 3, 5, 10, 0), 4);
+        add("Thursday", time(2014, 3, 6, 9, 0), time(2014, 3, 6, 10, 0), 5);
+        source.add("2", "Other calendar", time(2014, 3, 3, 12, 0), time(2014, 3, 3, 13, 0), false, null, 6);
+    }
+
+    @Test
+    public void testQuery() {
+        EventTable events = window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 2, false, 10);
+
+        assertTitles(events, "Monday", "Tuesday", "Overnight");
+        assertEquals(COLOR, events.getColor(0));
+        assertEquals(1, source.getQueryCount());
+    }
+
+    @Test
+    public void testQueryMaxEvents() {
+        EventTable events = window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 4, false, 2);
+
+        assertTitles(events, "Monday", "Tuesday");
+    }
+
+    @Test
+    public void testQueryAgainDoesNotRead() {
+        window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 2, false, 10);
+        EventTable events = window.query(source, calendars, time(2014, 3, 3, 9, 0), TIME_ZONE, 2, false, 10);
+
+        assertTitles(events, "Monday", "Tuesday", "Overnight");
+        assertEquals(1, source.getQueryCount());
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 2, false, 10);
+
+        // The next day only Thursday's events need to be read
+        EventTable events = window.query(source, calendars, time(2014, 3, 4, 8, 0), TIME_ZONE, 2, false, 10);
+
+        assertTitles(events, "Tuesday", "Overnight", "Wednesday");
+        assertEquals(2, source.getQueryCount());
+        // Monday's event was dropped from the front
+        assertTitles(window.getEvents(), "Tuesday", "Overnight", "Wednesday");
+    }
+
+    @Test
+    public void testAppendReadsStartingOnly() {
+        window.query(source, calendars, time(2014, 3, 4, 8, 0), TIME_ZONE, 1, true, 10);
+
+        // The overnight event goes on into Wednesday, but we already have it
+        EventTable events = window.query(source, calendars, time(2014, 3, 4, 8, 0), TIME_ZONE, 2, true, 10);
+
+        assertTitles(events, "Tuesday", "Overnight", "Wednesday");
+        assertEquals(2, source.getQueryCount());
+    }
+
+    @Test
+    public void testWindowExpires() {
+        window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 1, false, 10);
+
+        // None of the days we have are still needed, so everything is read again
+        EventTable events = window.query(source, calendars, time(2014, 3, 5, 0, 30), TIME_ZONE, 2, true, 10);
+
+        assertTitles(events, "Overnight", "Wednesday", "Thursday");
+        assertEquals(2, source.getQueryCount());
+    }
+
+    @Test
+    public void testShowCurrentEvent() {
+        long now = time(2014, 3, 3, 10, 30);
+
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, true, 10),
+                "Monday", "Tuesday", "Overnight");
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, false, 10),
+                "Tuesday", "Overnight");
+    }
+
+    @Test
+    public void testEndedEventsAreDropped() {
+        long now = time(2014, 3, 3, 11, 0);
+
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, true, 10), "Tuesday", "Overnight");
+    }
+
+    @Test
+    public void testQueryPage() {
+        long now = time(2014, 3, 3, 8, 0);
+
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 0, 2, false, 10),
+                "Monday", "Tuesday", "Overnight");
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, 2, false, 10),
+                "Wednesday", "Thursday");
+        assertEquals(2, source.getQueryCount());
+    }
+
+    @Test
+    public void testQueryPageBeforeWindow() {
+        // Reading the second page first reads the days before it too
+        EventTable events = window.query(source, calendars, time(2014, 3, 3, 8, 0), TIME_ZONE, 1, 2, false, 10);
+
+        assertTitles(events, "Tuesday", "Overnight", "Wednesday");
+        assertTitles(window.getEvents(), "Monday", "Tuesday", "Overnight", "Wednesday");
+    }
+
+    @Test
+    public void testQueryPageAcrossDaylightSavings() {
+        // The clocks fall back on November 2nd, so it is 25 hours long
+        add("Saturday", time(2014, 11, 1, 9, 0), time(2014, 11, 1, 10, 0), 7);
+        add("Sunday night", time(2014, 11, 2, 23, 30), time(2014, 11, 2, 23, 45), 8);
+        add("Monday morning", time(2014, 11, 3, 0, 30), time(2014, 11, 3, 1, 0), 9);
+        long now = time(2014, 11, 1, 8, 0);
+
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 0, 2, false, 10),
+                "Saturday", "Sunday night");
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, 1, false, 10),
+                "Monday morning");
+    }
+
+    @Test
+    public void testQueryPageAcrossSpringForward() {
+        // The clocks spring forward on March 9th, so it is 23 hours long
+        add("Saturday night", time(2014, 3, 8, 23, 30), time(2014, 3, 8, 23, 45), 7);
+        add("Sunday night", time(2014, 3, 9, 23, 30), time(2014, 3, 9, 23, 45), 8);
+        add("Monday morning", time(2014, 3, 10, 0, 30), time(2014, 3, 10, 1, 0), 9);
+        long now = time(2014, 3, 8, 8, 0);
+
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 1, 1, false, 10),
+                "Sunday night");
+        assertTitles(window.query(source, calendars, now, TIME_ZONE, 2, 1, false, 10),
+                "Monday morning");
+    }
+
+    @Test
+    public void testNoCalendars() {
+        EventTable events = window.query(source, new HashMap<String, Integer>(), time(2014, 3, 3, 8, 0),
+                TIME_ZONE, 2, false, 10);
+
+        assertTrue(events.isEmpty());
+        assertEquals(0, source.getQueryCount());
+    }
+
+    private void add(String title, long begin, long end, int eventId) {
+        source.add("1", title, begin, end, false, null, eventId);
+    }
+
+    private static void assertTitles(EventTable events, String... titles) {
+        StringBuilder expected = new StringBuilder();
+        for (String title : titles) {
+            expected.append(title).append(',');
+        }
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < events.size(); i++) {
+            actual.append(events.getTitle(i)).append(',');
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * @param month
+     * The month, starting at 1
+     */
+    private static long time(int year, int month, int day, int hour, int minute) {
+        GregorianCalendar calendar = new GregorianCalendar(TIME_ZONE);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.*;
+
+/**
+ * Compiles each of the SVG files in a directory in to the binary
+ * display list format, so the app can load them without parsing XML.
+ * The compiled files are named after the SVG, with a .svgb extension.
+ *
+ * @author brianreber
+ */
+public class CompileSvgTask extends DefaultTask {
+
+    private File source;
+    private File destination;
+
+    @InputDirectory
+    public File getSource() {
+        return source;
+    }
+
+    public void setSource(File source) {
+        this.source = source;
+    }
+
+    @OutputDirectory
+    public File getDestination() {
+        return destination;
+    }
+
+    public void setDestination(File destination) {
+        this.destination = destination;
+    }
+
+    @TaskAction
+    public void compile() throws IOException {
+        File[] files = source.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File svg : files) {
+            String name = svg.getName();
+            if (!name.endsWith(".svg")) {
+                continue;
+            }
+
+            File out = new File(destination, name.substring(0, name.length() - ".svg".length()) + ".svgb");
+            InputStream in = new BufferedInputStream(new FileInputStream(svg));
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(out));
+            try {
+                SVGCompiler.compile(in, os);
+            } catch (IOException e) {
+                throw new GradleException("Unable to compile " + svg, e);
+            } catch (RuntimeException e) {
+                // A value the compiler couldn't handle, name the file rather than failing with a bare stack trace
+                throw new GradleException("Unable to compile " + svg + ": " + e, e);
+            } finally {
+                in.close();
+                os.close();
+            }
+            getLogger().info("Compiled " + svg + " to " + out);
+        }
+    }
+}
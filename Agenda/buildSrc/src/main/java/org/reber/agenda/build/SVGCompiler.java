@@ -0,0 +1,1051 @@
+/*
+ * Copyright (C) 2012 Brian Reber
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms are permitted
+ * provided that the above copyright notice and this paragraph are
+ * duplicated in all such forms and that any documentation,
+ * advertising materials, and other materials related to such
+ * distribution and use acknowledge that the software was developed
+ * by Brian Reber.
+ * THIS SOFTWARE IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, WITHOUT LIMITATION, THE IMPLIED
+ * WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.reber.agenda.build;
+
+import com.larvalabs.svgandroid.ParserHelper;
+import com.larvalabs.svgandroid.SVGBinaryFormat;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an SVG in to the binary display list format read by
+ * com.larvalabs.svgandroid.CompiledSVG. This follows what SVGParser does
+ * on the device element by element, but writes down the drawing calls
+ * instead of making them, so the app doesn't need to parse any XML.
+ *
+ * @author brianreber
+ */
+public class SVGCompiler {
+
+    /**
+     * Compiles the SVG read from in, and writes the result to out
+     *
+     * @param in
+     * The SVG data
+     * @param out
+     * Where to write the compiled SVG
+     * @throws IOException
+     * If the SVG can't be read or parsed
+     */
+    public static void compile(InputStream in, OutputStream out) throws IOException {
+        Handler handler = new Handler();
+        try {
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            spf.setNamespaceAware(true);
+            XMLReader xr = spf.newSAXParser().getXMLReader();
+            xr.setContentHandler(handler);
+            xr.setEntityResolver(handler);
+            xr.parse(new InputSource(in));
+        } catch (SAXException e) {
+            throw new IOException("Unable to parse SVG: " + e.getMessage());
+        } catch (javax.xml.parsers.ParserConfigurationException e) {
+            throw new IOException("Unable to create SVG parser: " + e.getMessage());
+        }
+        handler.write(new DataOutputStream(out));
+    }
+
+    /**
+     * A 2D affine matrix, stored in the same order as android.graphics.Matrix
+     */
+    private static class Affine {
+        // scaleX, skewX, transX, skewY, scaleY, transY
+        float[] m = new float[] { 1, 0, 0, 0, 1, 0 };
+
+        Affine copy() {
+            Affine a = new Affine();
+            a.m = m.clone();
+            return a;
+        }
+
+        /**
+         * this = this * other
+         */
+        void preConcat(Affine other) {
+            m = multiply(m, other.m);
+        }
+
+        /**
+         * this = other * this
+         */
+        void postConcat(float[] other) {
+            m = multiply(other, m);
+        }
+
+        void postTranslate(float tx, float ty) {
+            postConcat(new float[] { 1, 0, tx, 0, 1, ty });
+        }
+
+        void postScale(float sx, float sy) {
+            postConcat(new float[] { sx, 0, 0, 0, sy, 0 });
+        }
+
+        void postSkew(float kx, float ky) {
+            postConcat(new float[] { 1, kx, 0, ky, 1, 0 });
+        }
+
+        void postRotate(float degrees) {
+            double rad = Math.toRadians(degrees);
+            float cos = (float) Math.cos(rad);
+            float sin = (float) Math.sin(rad);
+            postConcat(new float[] { cos, -sin, 0, sin, cos, 0 });
+        }
+
+        private static float[] multiply(float[] a, float[] b) {
+            return new float[] {
+                    a[0] * b[0] + a[1] * b[3],
+                    a[0] * b[1] + a[1] * b[4],
+                    a[0] * b[2] + a[1] * b[5] + a[2],
+                    a[3] * b[0] + a[4] * b[3],
+                    a[3] * b[1] + a[4] * b[4],
+                    a[3] * b[2] + a[4] * b[5] + a[5],
+            };
+        }
+    }
+
+    private static class Gradient {
+        String id;
+        String xlink;
+        boolean isLinear;
+        float x1, y1, x2, y2;
+        float x, y, radius;
+        List<Float> positions = new ArrayList<Float>();
+        List<Integer> colors = new ArrayList<Integer>();
+        Affine matrix = null;
+
+        Gradient createChild(Gradient g) {
+            Gradient child = new Gradient();
+            child.id = g.id;
+            child.xlink = id;
+            child.isLinear = g.isLinear;
+            child.x1 = g.x1;
+            child.x2 = g.x2;
+            child.y1 = g.y1;
+            child.y2 = g.y2;
+            child.x = g.x;
+            child.y = g.y;
+            child.radius = g.radius;
+            child.positions = positions;
+            child.colors = colors;
+            child.matrix = matrix;
+            if (g.matrix != null) {
+                if (matrix == null) {
+                    child.matrix = g.matrix;
+                } else {
+                    Affine m = matrix.copy();
+                    m.preConcat(g.matrix);
+                    child.matrix = m;
+                }
+            }
+            return child;
+        }
+    }
+
+    /**
+     * Reads an attribute from the style attribute first, then from the element itself
+     */
+    private static class Properties {
+        Map<String, String> styles = null;
+        Attributes atts;
+        ParserHelper ph;
+
+        Properties(Attributes atts, ParserHelper ph) {
+            this.atts = atts;
+            this.ph = ph;
+            String styleAttr = getStringAttr("style", atts);
+            if (styleAttr != null) {
+                styles = parseStyle(styleAttr);
+            }
+        }
+
+        String getString(String name) {
+            String v = null;
+            if (styles != null) {
+                v = styles.get(name);
+            }
+            if (v == null) {
+                v = getStringAttr(name, atts);
+            }
+            return v;
+        }
+
+        Integer getHex(String name) {
+            String v = getString(name);
+            if (v == null || !v.startsWith("#")) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(v.substring(1), 16);
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+        }
+
+        float getFloat(String name, float defaultValue) {
+            return ph.parseFloat(getString(name), defaultValue);
+        }
+    }
+
+    /**
+     * Builds up the verbs and coordinates of a path, keeping track of the
+     * points so the bounds can be worked out the same way Path.computeBounds does.
+     */
+    private static class PathWriter {
+        ByteArrayOutputStream verbs = new ByteArrayOutputStream();
+        List<Float> coords = new ArrayList<Float>();
+        float lastX, lastY;
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        boolean empty = true;
+
+        private void point(float x, float y) {
+            empty = false;
+            left = Math.min(left, x);
+            right = Math.max(right, x);
+            top = Math.min(top, y);
+            bottom = Math.max(bottom, y);
+        }
+
+        private void add(byte verb, float... values) {
+            verbs.write(verb);
+            for (float v : values) {
+                coords.add(v);
+            }
+        }
+
+        void moveTo(float x, float y) {
+            add(SVGBinaryFormat.VERB_MOVE, x, y);
+            lastX = x;
+            lastY = y;
+            point(x, y);
+        }
+
+        void rMoveTo(float dx, float dy) {
+            add(SVGBinaryFormat.VERB_RMOVE, dx, dy);
+            lastX += dx;
+            lastY += dy;
+            point(lastX, lastY);
+        }
+
+        void lineTo(float x, float y) {
+            add(SVGBinaryFormat.VERB_LINE, x, y);
+            lastX = x;
+            lastY = y;
+            point(x, y);
+        }
+
+        void rLineTo(float dx, float dy) {
+            add(SVGBinaryFormat.VERB_RLINE, dx, dy);
+            lastX += dx;
+            lastY += dy;
+            point(lastX, lastY);
+        }
+
+        void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+            add(SVGBinaryFormat.VERB_CUBIC, x1, y1, x2, y2, x, y);
+            point(x1, y1);
+            point(x2, y2);
+            lastX = x;
+            lastY = y;
+            point(x, y);
+        }
+
+        void close() {
+            add(SVGBinaryFormat.VERB_CLOSE);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(verbs.size());
+            verbs.writeTo(out);
+            out.writeInt(coords.size());
+            for (float f : coords) {
+                out.writeFloat(f);
+            }
+        }
+    }
+
+    private static class Handler extends DefaultHandler {
+
+        ByteArrayOutputStream opBytes = new ByteArrayOutputStream();
+        DataOutputStream ops = new DataOutputStream(opBytes);
+
+        int width;
+        int height;
+        float[] bounds = null;
+        float[] limits = new float[] { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+
+        // Whether each group and element we are inside of saved the canvas, outermost first
+        List<Boolean> pushed = new ArrayList<Boolean>();
+
+        Map<String, Integer> gradientMap = new HashMap<String, Integer>();
+        Map<String, Gradient> gradientRefMap = new HashMap<String, Gradient>();
+        Gradient gradient = null;
+        int shaderCount = 0;
+
+        boolean hidden = false;
+        int hiddenLevel = 0;
+        boolean boundsMode = false;
+
+        // Numbers are read the same way SVGParser reads them at runtime
+        ParserHelper ph = new ParserHelper();
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            // Don't go out to the network for the DTD
+            return new InputSource(new StringReader(""));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(SVGBinaryFormat.MAGIC);
+            out.writeShort(SVGBinaryFormat.VERSION);
+            out.writeInt(width);
+            out.writeInt(height);
+            writeRect(out, bounds);
+            // Skip limits if it was an empty pic
+            writeRect(out, Float.isInfinite(limits[1]) ? null : limits);
+            ops.writeByte(SVGBinaryFormat.OP_END);
+            ops.flush();
+            opBytes.writeTo(out);
+            out.flush();
+        }
+
+        private static void writeRect(DataOutputStream out, float[] rect) throws IOException {
+            out.writeByte(rect == null ? 0 : 1);
+            if (rect != null) {
+                for (float f : rect) {
+                    out.writeFloat(f);
+                }
+            }
+        }
+
+        private static void writeMatrix(DataOutputStream out, Affine matrix) throws IOException {
+            for (float f : matrix.m) {
+                out.writeFloat(f);
+            }
+        }
+
+        private boolean doFill(Properties atts) throws IOException {
+            if ("none".equals(atts.getString("display"))) {
+                return false;
+            }
+            String fillString = atts.getString("fill");
+            if (fillString != null && fillString.startsWith("url(#")) {
+                // It's a gradient fill, look it up in our map
+                String id = fillString.substring("url(#".length(), fillString.length() - 1);
+                Integer shader = gradientMap.get(id);
+                if (shader != null) {
+                    ops.writeByte(SVGBinaryFormat.OP_FILL_SHADER);
+                    ops.writeShort(shader);
+                    return true;
+                } else {
+                    return false;
+                }
+            } else {
+                Integer color = atts.getHex("fill");
+                if (color != null) {
+                    ops.writeByte(SVGBinaryFormat.OP_FILL_COLOR);
+                    writeColor(atts, color, true);
+                    return true;
+                } else if (atts.getString("fill") == null && atts.getString("stroke") == null) {
+                    // Default is black fill
+                    ops.writeByte(SVGBinaryFormat.OP_FILL_COLOR);
+                    ops.writeInt(0xFF000000);
+                    ops.writeByte(255);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean doStroke(Properties atts) throws IOException {
+            if ("none".equals(atts.getString("display"))) {
+                return false;
+            }
+            Integer color = atts.getHex("stroke");
+            if (color == null) {
+                return false;
+            }
+            ops.writeByte(SVGBinaryFormat.OP_STROKE);
+            writeColor(atts, color, false);
+
+            float width = atts.getFloat("stroke-width", Float.NaN);
+            String linecap = atts.getString("stroke-linecap");
+            byte cap = -1;
+            if ("round".equals(linecap)) {
+                cap = SVGBinaryFormat.CAP_ROUND;
+            } else if ("square".equals(linecap)) {
+                cap = SVGBinaryFormat.CAP_SQUARE;
+            } else if ("butt".equals(linecap)) {
+                cap = SVGBinaryFormat.CAP_BUTT;
+            }
+            String linejoin = atts.getString("stroke-linejoin");
+            byte join = -1;
+            if ("miter".equals(linejoin)) {
+                join = SVGBinaryFormat.JOIN_MITER;
+            } else if ("round".equals(linejoin)) {
+                join = SVGBinaryFormat.JOIN_ROUND;
+            } else if ("bevel".equals(linejoin)) {
+                join = SVGBinaryFormat.JOIN_BEVEL;
+            }
+
+            int flags = (!Float.isNaN(width) ? SVGBinaryFormat.STROKE_WIDTH : 0)
+                    | (cap >= 0 ? SVGBinaryFormat.STROKE_CAP : 0)
+                    | (join >= 0 ? SVGBinaryFormat.STROKE_JOIN : 0);
+            ops.writeByte(flags);
+            if (!Float.isNaN(width)) {
+                ops.writeFloat(width);
+            }
+            if (cap >= 0) {
+                ops.writeByte(cap);
+            }
+            if (join >= 0) {
+                ops.writeByte(join);
+            }
+            return true;
+        }
+
+        private void writeColor(Properties atts, int color, boolean fillMode) throws IOException {
+            int c = (0xFFFFFF & color) | 0xFF000000;
+            float opacity = atts.getFloat("opacity", Float.NaN);
+            if (Float.isNaN(opacity)) {
+                opacity = atts.getFloat(fillMode ? "fill-opacity" : "stroke-opacity", Float.NaN);
+            }
+            int alpha = Float.isNaN(opacity) ? 255 : (int) (255 * opacity);
+            ops.writeInt(c);
+            ops.writeByte(Math.max(0, Math.min(255, alpha)));
+        }
+
+        private Gradient doGradient(boolean isLinear, Attributes atts) {
+            Gradient gradient = new Gradient();
+            gradient.id = getStringAttr("id", atts);
+            gradient.isLinear = isLinear;
+            if (isLinear) {
+                gradient.x1 = getFloatAttr("x1", atts, ph, 0f);
+                gradient.x2 = getFloatAttr("x2", atts, ph, 0f);
+                gradient.y1 = getFloatAttr("y1", atts, ph, 0f);
+                gradient.y2 = getFloatAttr("y2", atts, ph, 0f);
+            } else {
+                gradient.x = getFloatAttr("cx", atts, ph, 0f);
+                gradient.y = getFloatAttr("cy", atts, ph, 0f);
+                gradient.radius = getFloatAttr("r", atts, ph, 0f);
+            }
+            String transform = getStringAttr("gradientTransform", atts);
+            if (transform != null) {
+                gradient.matrix = parseTransform(transform, ph);
+            }
+            String xlink = getStringAttr("href", atts);
+            if (xlink != null) {
+                if (xlink.startsWith("#")) {
+                    xlink = xlink.substring(1);
+                }
+                gradient.xlink = xlink;
+            }
+            return gradient;
+        }
+
+        private void writeGradient(Gradient gradient) throws IOException {
+            int index = shaderCount++;
+            if (gradient.isLinear) {
+                ops.writeByte(SVGBinaryFormat.OP_LINEAR_GRADIENT);
+                ops.writeShort(index);
+                ops.writeFloat(gradient.x1);
+                ops.writeFloat(gradient.y1);
+                ops.writeFloat(gradient.x2);
+                ops.writeFloat(gradient.y2);
+            } else {
+                ops.writeByte(SVGBinaryFormat.OP_RADIAL_GRADIENT);
+                ops.writeShort(index);
+                ops.writeFloat(gradient.x);
+                ops.writeFloat(gradient.y);
+                ops.writeFloat(gradient.radius);
+            }
+            ops.writeInt(gradient.colors.size());
+            for (int color : gradient.colors) {
+                ops.writeInt(color);
+            }
+            for (float position : gradient.positions) {
+                ops.writeFloat(position);
+            }
+            ops.writeByte(gradient.matrix != null ? 1 : 0);
+            if (gradient.matrix != null) {
+                writeMatrix(ops, gradient.matrix);
+            }
+            gradientMap.put(gradient.id, index);
+            gradientRefMap.put(gradient.id, gradient);
+        }
+
+        private void doLimits(float x, float y) {
+            limits[0] = Math.min(limits[0], x);
+            limits[2] = Math.max(limits[2], x);
+            limits[1] = Math.min(limits[1], y);
+            limits[3] = Math.max(limits[3], y);
+        }
+
+        private void doLimits(PathWriter path) {
+            if (path.empty) {
+                // An empty path has empty bounds
+                doLimits(0, 0);
+                return;
+            }
+            doLimits(path.left, path.top);
+            doLimits(path.right, path.bottom);
+        }
+
+        private void pushTransform(Attributes atts) throws IOException {
+            final String transform = getStringAttr("transform", atts);
+            pushed.add(transform != null);
+            if (transform != null) {
+                Affine matrix = parseTransform(transform, ph);
+                if (matrix == null) {
+                    // The parser leaves the canvas alone, apart from the save
+                    matrix = new Affine();
+                }
+                ops.writeByte(SVGBinaryFormat.OP_SAVE);
+                writeMatrix(ops, matrix);
+            }
+        }
+
+        private void popTransform() throws IOException {
+            if (!pushed.isEmpty() && pushed.remove(pushed.size() - 1)) {
+                ops.writeByte(SVGBinaryFormat.OP_RESTORE);
+            }
+        }
+
+        @Override
+        public void startElement(String namespaceURI, String localName, String qName, Attributes atts) throws SAXException {
+            try {
+                doStartElement(localName, atts);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        private void doStartElement(String localName, Attributes atts) throws IOException {
+            // Ignore everything but rectangles in bounds mode
+            if (boundsMode) {
+                if (localName.equals("rect")) {
+                    float x = getFloatAttr("x", atts, ph, 0f);
+                    float y = getFloatAttr("y", atts, ph, 0f);
+                    float width = getFloatAttr("width", atts, ph, 0f);
+                    // Matches what SVGParser does, which uses the width for the height
+                    bounds = new float[] { x, y, x + width, y + width };
+                }
+                return;
+            }
+            if (localName.equals("svg")) {
+                width = (int) Math.ceil(getFloatAttr("width", atts, ph, 0f));
+                height = (int) Math.ceil(getFloatAttr("height", atts, ph, 0f));
+            } else if (localName.equals("linearGradient")) {
+                gradient = doGradient(true, atts);
+            } else if (localName.equals("radialGradient")) {
+                gradient = doGradient(false, atts);
+            } else if (localName.equals("stop")) {
+                if (gradient != null) {
+                    float offset = getFloatAttr("offset", atts, ph, 0f);
+                    Map<String, String> styles = parseStyle(getStringAttr("style", atts));
+                    String colorStyle = styles.get("stop-color");
+                    int color = 0xFF000000;
+                    if (colorStyle != null) {
+                        if (colorStyle.startsWith("#")) {
+                            color = Integer.parseInt(colorStyle.substring(1), 16);
+                        } else {
+                            color = Integer.parseInt(colorStyle, 16);
+                        }
+                    }
+                    String opacityStyle = styles.get("stop-opacity");
+                    if (opacityStyle != null) {
+                        float alpha = ph.parseFloat(opacityStyle, 1f);
+                        int alphaInt = Math.round(255 * alpha);
+                        color |= (alphaInt << 24);
+                    } else {
+                        color |= 0xFF000000;
+                    }
+                    gradient.positions.add(offset);
+                    gradient.colors.add(color);
+                }
+            } else if (localName.equals("g")) {
+                // Check to see if this is the "bounds" layer
+                if ("bounds".equalsIgnoreCase(getStringAttr("id", atts))) {
+                    boundsMode = true;
+                }
+                // The group's transform applies to everything inside of it
+                pushTransform(atts);
+                if (hidden) {
+                    hiddenLevel++;
+                }
+                // Go in to hidden mode if display is "none"
+                if ("none".equals(getStringAttr("display", atts))) {
+                    if (!hidden) {
+                        hidden = true;
+                        hiddenLevel = 1;
+                    }
+                }
+            } else if (!hidden && localName.equals("rect")) {
+                float x = getFloatAttr("x", atts, ph, 0f);
+                float y = getFloatAttr("y", atts, ph, 0f);
+                float width = getFloatAttr("width", atts, ph, 0f);
+                float height = getFloatAttr("height", atts, ph, 0f);
+                pushTransform(atts);
+                Properties props = new Properties(atts, ph);
+                if (doFill(props)) {
+                    doLimits(x, y);
+                    doLimits(x + width, y + height);
+                    writeRect(SVGBinaryFormat.OP_RECT, x, y, x + width, y + height);
+                }
+                if (doStroke(props)) {
+                    writeRect(SVGBinaryFormat.OP_RECT, x, y, x + width, y + height);
+                }
+                popTransform();
+            } else if (!hidden && localName.equals("line")) {
+                float x1 = getFloatAttr("x1", atts, ph, 0f);
+                float x2 = getFloatAttr("x2", atts, ph, 0f);
+                float y1 = getFloatAttr("y1", atts, ph, 0f);
+                float y2 = getFloatAttr("y2", atts, ph, 0f);
+                Properties props = new Properties(atts, ph);
+                if (doStroke(props)) {
+                    pushTransform(atts);
+                    doLimits(x1, y1);
+                    doLimits(x2, y2);
+                    writeRect(SVGBinaryFormat.OP_LINE, x1, y1, x2, y2);
+                    popTransform();
+                }
+            } else if (!hidden && localName.equals("circle")) {
+                float centerX = getFloatAttr("cx", atts, ph, Float.NaN);
+                float centerY = getFloatAttr("cy", atts, ph, Float.NaN);
+                float radius = getFloatAttr("r", atts, ph, Float.NaN);
+                if (!Float.isNaN(centerX) && !Float.isNaN(centerY) && !Float.isNaN(radius)) {
+                    pushTransform(atts);
+                    Properties props = new Properties(atts, ph);
+                    if (doFill(props)) {
+                        doLimits(centerX - radius, centerY - radius);
+                        doLimits(centerX + radius, centerY + radius);
+                        writeCircle(centerX, centerY, radius);
+                    }
+                    if (doStroke(props)) {
+                        writeCircle(centerX, centerY, radius);
+                    }
+                    popTransform();
+                }
+            } else if (!hidden && localName.equals("ellipse")) {
+                float centerX = getFloatAttr("cx", atts, ph, Float.NaN);
+                float centerY = getFloatAttr("cy", atts, ph, Float.NaN);
+                float radiusX = getFloatAttr("rx", atts, ph, Float.NaN);
+                float radiusY = getFloatAttr("ry", atts, ph, Float.NaN);
+                if (!Float.isNaN(centerX) && !Float.isNaN(centerY) && !Float.isNaN(radiusX) && !Float.isNaN(radiusY)) {
+                    pushTransform(atts);
+                    Properties props = new Properties(atts, ph);
+                    if (doFill(props)) {
+                        doLimits(centerX - radiusX, centerY - radiusY);
+                        doLimits(centerX + radiusX, centerY + radiusY);
+                        writeRect(SVGBinaryFormat.OP_OVAL, centerX - radiusX, centerY - radiusY, centerX + radiusX, centerY + radiusY);
+                    }
+                    if (doStroke(props)) {
+                        writeRect(SVGBinaryFormat.OP_OVAL, centerX - radiusX, centerY - radiusY, centerX + radiusX, centerY + radiusY);
+                    }
+                    popTransform();
+                }
+            } else if (!hidden && (localName.equals("polygon") || localName.equals("polyline"))) {
+                String pointsString = getStringAttr("points", atts);
+                if (pointsString != null) {
+                    int count = ph.reset(pointsString, 0).parseNumbers();
+                    if (count > 1) {
+                        // Build the path first, the transform reuses the number buffer
+                        PathWriter p = new PathWriter();
+                        p.moveTo(ph.getNumber(0), ph.getNumber(1));
+                        for (int i = 2; i + 1 < count; i += 2) {
+                            p.lineTo(ph.getNumber(i), ph.getNumber(i + 1));
+                        }
+                        // Don't close a polyline
+                        if (localName.equals("polygon")) {
+                            p.close();
+                        }
+                        pushTransform(atts);
+                        Properties props = new Properties(atts, ph);
+                        if (doFill(props)) {
+                            doLimits(p);
+                            writePath(p);
+                        }
+                        if (doStroke(props)) {
+                            writePath(p);
+                        }
+                        popTransform();
+                    }
+                }
+            } else if (!hidden && localName.equals("path")) {
+                PathWriter p = doPath(getStringAttr("d", atts));
+                pushTransform(atts);
+                Properties props = new Properties(atts, ph);
+                if (doFill(props)) {
+                    doLimits(p);
+                    writePath(p);
+                }
+                if (doStroke(props)) {
+                    writePath(p);
+                }
+                popTransform();
+            }
+        }
+
+        private void writeRect(byte op, float a, float b, float c, float d) throws IOException {
+            ops.writeByte(op);
+            ops.writeFloat(a);
+            ops.writeFloat(b);
+            ops.writeFloat(c);
+            ops.writeFloat(d);
+        }
+
+        private void writeCircle(float x, float y, float radius) throws IOException {
+            ops.writeByte(SVGBinaryFormat.OP_CIRCLE);
+            ops.writeFloat(x);
+            ops.writeFloat(y);
+            ops.writeFloat(radius);
+        }
+
+        private void writePath(PathWriter p) throws IOException {
+            ops.writeByte(SVGBinaryFormat.OP_PATH);
+            p.write(ops);
+        }
+
+        @Override
+        public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
+            try {
+                if (localName.equals("linearGradient")) {
+                    if (gradient.id != null) {
+                        if (gradient.xlink != null) {
+                            Gradient parent = gradientRefMap.get(gradient.xlink);
+                            if (parent != null) {
+                                gradient = parent.createChild(gradient);
+                            }
+                        }
+                        writeGradient(gradient);
+                    }
+                } else if (localName.equals("radialGradient")) {
+                    if (gradient.id != null) {
+                        if (gradient.xlink != null) {
+                            Gradient parent = gradientRefMap.get(gradient.xlink);
+                            if (parent != null) {
+                                gradient = parent.createChild(gradient);
+                            }
+                        }
+                        // SVGParser resolves the parent of a radial gradient a second time,
+                        // which applies the parent's matrix twice
+                        if (gradient.xlink != null) {
+                            Gradient parent = gradientRefMap.get(gradient.xlink);
+                            if (parent != null) {
+                                gradient = parent.createChild(gradient);
+                            }
+                        }
+                        writeGradient(gradient);
+                    }
+                } else if (localName.equals("g")) {
+                    if (boundsMode) {
+                        boundsMode = false;
+                    }
+                    popTransform();
+                    // Break out of hidden mode
+                    if (hidden) {
+                        hiddenLevel--;
+                        if (hiddenLevel == 0) {
+                            hidden = false;
+                        }
+                    }
+                    // Clear gradient map
+                    gradientMap.clear();
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    private static String getStringAttr(String name, Attributes attributes) {
+        int n = attributes.getLength();
+        for (int i = 0; i < n; i++) {
+            if (attributes.getLocalName(i).equals(name)) {
+                return attributes.getValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static float getFloatAttr(String name, Attributes attributes, ParserHelper ph, float defaultValue) {
+        // Units such as px are ignored, as SVGParser does
+        return ph.parseFloat(getStringAttr(name, attributes), defaultValue);
+    }
+
+    private static Map<String, String> parseStyle(String string) {
+        Map<String, String> styleMap = new HashMap<String, String>();
+        for (String s : string.split(";")) {
+            String[] style = s.split(":");
+            if (style.length == 2) {
+                styleMap.put(style[0], style[1]);
+            }
+        }
+        return styleMap;
+    }
+
+    /**
+     * Parses a transform attribute the same way SVGParser.parseTransform does,
+     * using the given helper to read the numbers.
+     */
+    private static Affine parseTransform(String s, ParserHelper ph) {
+        if (s.startsWith("matrix(")) {
+            int count = ph.reset(s, "matrix(".length()).parseNumbers();
+            if (count == 6) {
+                Affine matrix = new Affine();
+                matrix.m = new float[] { ph.getNumber(0), ph.getNumber(2), ph.getNumber(4),
+                        ph.getNumber(1), ph.getNumber(3), ph.getNumber(5) };
+                return matrix;
+            }
+        } else if (s.startsWith("translate(")) {
+            int count = ph.reset(s, "translate(".length()).parseNumbers();
+            if (count > 0) {
+                Affine matrix = new Affine();
+                matrix.postTranslate(ph.getNumber(0), count > 1 ? ph.getNumber(1) : 0);
+                return matrix;
+            }
+        } else if (s.startsWith("scale(")) {
+            int count = ph.reset(s, "scale(".length()).parseNumbers();
+            if (count > 0) {
+                Affine matrix = new Affine();
+                matrix.postScale(ph.getNumber(0), count > 1 ? ph.getNumber(1) : 0);
+                return matrix;
+            }
+        } else if (s.startsWith("skewX(")) {
+            int count = ph.reset(s, "skewX(".length()).parseNumbers();
+            if (count > 0) {
+                Affine matrix = new Affine();
+                matrix.postSkew((float) Math.tan(ph.getNumber(0)), 0);
+                return matrix;
+            }
+        } else if (s.startsWith("skewY(")) {
+            int count = ph.reset(s, "skewY(".length()).parseNumbers();
+            if (count > 0) {
+                Affine matrix = new Affine();
+                matrix.postSkew(0, (float) Math.tan(ph.getNumber(0)));
+                return matrix;
+            }
+        } else if (s.startsWith("rotate(")) {
+            int count = ph.reset(s, "rotate(".length()).parseNumbers();
+            if (count > 0) {
+                float angle = ph.getNumber(0);
+                float cx = 0;
+                float cy = 0;
+                if (count > 2) {
+                    cx = ph.getNumber(1);
+                    cy = ph.getNumber(2);
+                }
+                Affine matrix = new Affine();
+                matrix.postTranslate(cx, cy);
+                matrix.postRotate(angle);
+                matrix.postTranslate(-cx, -cy);
+                return matrix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads SVG path data in to a PathWriter. See SVGParser.doPath for the details.
+     */
+    private static PathWriter doPath(String s) {
+        int n = s.length();
+        ParserHelper ph = new ParserHelper(s, 0);
+        ph.skipWhitespace();
+        PathWriter p = new PathWriter();
+        float lastX = 0;
+        float lastY = 0;
+        float lastX1 = 0;
+        float lastY1 = 0;
+        float subPathStartX = 0;
+        float subPathStartY = 0;
+        char prevCmd = 0;
+        while (ph.pos < n) {
+            char cmd = s.charAt(ph.pos);
+            switch (cmd) {
+                case '-':
+                case '+':
+                case '0':
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    if (prevCmd == 'm' || prevCmd == 'M') {
+                        cmd = (char) (((int) prevCmd) - 1);
+                        break;
+                    } else if (prevCmd == 'c' || prevCmd == 'C') {
+                        cmd = prevCmd;
+                        break;
+                    } else if (prevCmd == 'l' || prevCmd == 'L') {
+                        cmd = prevCmd;
+                        break;
+                    }
+                default: {
+                    ph.advance();
+                    prevCmd = cmd;
+                }
+            }
+
+            boolean wasCurve = false;
+            switch (cmd) {
+                case 'M':
+                case 'm': {
+                    float x = ph.nextFloat();
+                    float y = ph.nextFloat();
+                    if (cmd == 'm') {
+                        subPathStartX += x;
+                        subPathStartY += y;
+                        p.rMoveTo(x, y);
+                        lastX += x;
+                        lastY += y;
+                    } else {
+                        subPathStartX = x;
+                        subPathStartY = y;
+                        p.moveTo(x, y);
+                        lastX = x;
+                        lastY = y;
+                    }
+                    break;
+                }
+                case 'Z':
+                case 'z': {
+                    p.close();
+                    p.moveTo(subPathStartX, subPathStartY);
+                    lastX = subPathStartX;
+                    lastY = subPathStartY;
+                    lastX1 = subPathStartX;
+                    lastY1 = subPathStartY;
+                    wasCurve = true;
+                    break;
+                }
+                case 'L':
+                case 'l': {
+                    float x = ph.nextFloat();
+                    float y = ph.nextFloat();
+                    if (cmd == 'l') {
+                        p.rLineTo(x, y);
+                        lastX += x;
+                        lastY += y;
+                    } else {
+                        p.lineTo(x, y);
+                        lastX = x;
+                        lastY = y;
+                    }
+                    break;
+                }
+                case 'H':
+                case 'h': {
+                    float x = ph.nextFloat();
+                    if (cmd == 'h') {
+                        p.rLineTo(x, 0);
+                        lastX += x;
+                    } else {
+                        p.lineTo(x, lastY);
+                        lastX = x;
+                    }
+                    break;
+                }
+                case 'V':
+                case 'v': {
+                    float y = ph.nextFloat();
+                    if (cmd == 'v') {
+                        p.rLineTo(0, y);
+                        lastY += y;
+                    } else {
+                        p.lineTo(lastX, y);
+                        lastY = y;
+                    }
+                    break;
+                }
+                case 'C':
+                case 'c': {
+                    wasCurve = true;
+                    float x1 = ph.nextFloat();
+                    float y1 = ph.nextFloat();
+                    float x2 = ph.nextFloat();
+                    float y2 = ph.nextFloat();
+                    float x = ph.nextFloat();
+                    float y = ph.nextFloat();
+                    if (cmd == 'c') {
+                        x1 += lastX;
+                        x2 += lastX;
+                        x += lastX;
+                        y1 += lastY;
+                        y2 += lastY;
+                        y += lastY;
+                    }
+                    p.cubicTo(x1, y1, x2, y2, x, y);
+                    lastX1 = x2;
+                    lastY1 = y2;
+                    lastX = x;
+                    lastY = y;
+                    break;
+                }
+                case 'S':
+                case 's': {
+                    wasCurve = true;
+                    float x2 = ph.nextFloat();
+                    float y2 = ph.nextFloat();
+                    float x = ph.nextFloat();
+                    float y = ph.nextFloat();
+                    if (cmd == 's') {
+                        x2 += lastX;
+                        x += lastX;
+                        y2 += lastY;
+                        y += lastY;
+                    }
+                    float x1 = 2 * lastX - lastX1;
+                    float y1 = 2 * lastY - lastY1;
+                    p.cubicTo(x1, y1, x2, y2, x, y);
+                    lastX1 = x2;
+                    lastY1 = y2;
+                    lastX = x;
+                    lastY = y;
+                    break;
+                }
+                case 'A':
+                case 'a': {
+                    // Arcs aren't drawn by SVGParser either, just skip over them
+                    for (int i = 0; i < 5; i++) {
+                        ph.nextFloat();
+                    }
+                    lastX = ph.nextFloat();
+                    lastY = ph.nextFloat();
+                    break;
+                }
+            }
+            if (!wasCurve) {
+                lastX1 = lastX;
+                lastY1 = lastY;
+            }
+            ph.skipWhitespace();
+        }
+        return p;
+    }
+}